@@ -0,0 +1,74 @@
+package com.rombosaur.engine.benchmarks;
+
+import com.badlogic.gdx.utils.Array;
+import com.rombosaur.engine.renderer.AnimatedTexture;
+import com.rombosaur.engine.renderer.Renderable;
+import com.rombosaur.engine.renderer.Renderer;
+import com.rombosaur.engine.renderer.TextureRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AnimatedTexture.draw() alone, without the Renderer around it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AnimatedTextureBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int count;
+
+    private Renderer renderer;
+    private RecordingBatch batch;
+    private AnimatedTexture texture;
+    private Renderable[] items;
+    private Array<Renderable> renderables;
+
+    @Setup
+    public void setup(){
+        Headless.start();
+
+        batch = new RecordingBatch();
+        renderer = new Renderer(batch);
+        renderables = Headless.spawn(count);
+        renderer.prepareTextures(renderables);
+        for(Renderable renderable : renderables){
+            renderable.setAnimation("idle", renderer);
+            renderable.flipHorizontally = renderable.x % 40 == 0;
+        }
+
+        items = renderables.toArray(Renderable.class);
+        texture = TextureRegistry.getInstance().get(items[0].id);
+    }
+
+    @TearDown
+    public void tearDown(){
+        renderer.releaseTextures(renderables);
+    }
+
+    @Benchmark
+    public float draw(){
+        batch.reset();
+        batch.begin();
+        for(Renderable renderable : items){
+            texture.draw(batch, renderable);
+        }
+        batch.end();
+        return batch.checksum;
+    }
+}
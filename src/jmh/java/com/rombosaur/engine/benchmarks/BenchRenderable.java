@@ -0,0 +1,42 @@
+package com.rombosaur.engine.benchmarks;
+
+import com.badlogic.gdx.utils.ObjectMap;
+import com.rombosaur.engine.renderer.AnimationData;
+import com.rombosaur.engine.renderer.Renderable;
+
+/**
+ * Minimal Renderable: a 4x4 sheet with one looping animation.
+ */
+public class BenchRenderable extends Renderable {
+    static final String SHEET = "benchmarks/sheet.png";
+
+    @Override
+    public void init(float x, float y) {
+        this.x = x;
+        this.y = y;
+        prevX = x;
+        prevY = y;
+        width = 16;
+        height = 16;
+        texturePath = SHEET;
+        framesCols = 4;
+        framesRows = 4;
+        setId();
+        if(bounds == null) {
+            setBounds(12, 14);
+        }
+    }
+
+    @Override
+    public ObjectMap<String, AnimationData> buildAnimations(ObjectMap<String, AnimationData> animationsMap) {
+        if(!animationsMap.containsKey("idle")){
+            animationsMap.put("idle", new AnimationData(new short[]{0, 1, 2, 3}, (byte)8, true));
+        }
+        return animationsMap;
+    }
+
+    @Override
+    public void reset() {
+        x = y = prevX = prevY = 0;
+    }
+}
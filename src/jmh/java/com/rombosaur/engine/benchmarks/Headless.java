@@ -0,0 +1,56 @@
+package com.rombosaur.engine.benchmarks;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
+import com.rombosaur.engine.renderer.AnimatedTexture;
+import com.rombosaur.engine.renderer.Renderable;
+import com.rombosaur.engine.renderer.TextureRegistry;
+
+/**
+ * Shared setup of the benchmarks: libgdx headless backend (mock GL, no GPU) and the bench sheet.
+ */
+final class Headless {
+    private static HeadlessApplication app;
+
+    private Headless() {}
+
+    static synchronized void start(){
+        if(app != null){
+            return;
+        }
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.renderInterval = -1; // No hace falta el loop, los benchmarks llaman a todo a mano
+        app = new HeadlessApplication(new ApplicationAdapter() {}, config);
+        Gdx.app.setLogLevel(Application.LOG_ERROR);
+
+        // La textura no sale de un archivo, se registra a mano y prepareTextures() solo arma las animaciones
+        TextureRegistry registry = TextureRegistry.getInstance();
+        int id = registry.getId(BenchRenderable.SHEET);
+        if(!registry.isLoaded(id)){
+            Pixmap pixmap = new Pixmap(64, 64, Pixmap.Format.RGBA8888);
+            registry.put(id, new AnimatedTexture(new Texture(pixmap), 4, 4), 4, 4, null);
+            pixmap.dispose();
+        }
+    }
+
+    /**
+     * Renderables on a square grid, 20 units apart.
+     */
+    static Array<Renderable> spawn(int count){
+        Array<Renderable> result = new Array<Renderable>(count);
+        int side = (int)Math.ceil(Math.sqrt(count));
+        for(int i = 0; i < count; i++){
+            BenchRenderable renderable = new BenchRenderable();
+            renderable.init((i % side) * 20, (i / side) * 20);
+            result.add(renderable);
+        }
+        return result;
+    }
+}
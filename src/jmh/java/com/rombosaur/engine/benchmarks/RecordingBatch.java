@@ -0,0 +1,88 @@
+package com.rombosaur.engine.benchmarks;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Matrix4;
+
+/**
+ * Batch that doesn't touch GL, it only records what a SpriteBatch would do:
+ * sprites, texture switches (flushes) and a checksum of the coordinates so the JIT can't drop the calls.
+ */
+public class RecordingBatch implements Batch {
+    public int sprites;
+    public int textureSwitches;
+    public float checksum;
+
+    private Texture lastTexture;
+    private boolean drawing;
+    private final Color color = new Color(1, 1, 1, 1);
+    private float packedColor = Color.WHITE.toFloatBits();
+    private final Matrix4 projection = new Matrix4();
+    private final Matrix4 transform = new Matrix4();
+
+    public void reset(){
+        sprites = 0;
+        textureSwitches = 0;
+        checksum = 0;
+        lastTexture = null;
+    }
+
+    private void record(Texture texture, float x, float y, float width, float height){
+        if(texture != lastTexture){
+            lastTexture = texture;
+            textureSwitches++;
+        }
+        sprites++;
+        checksum += x + y + width + height;
+    }
+
+    public void begin() { drawing = true; }
+    public void end() { drawing = false; }
+
+    public void setColor(Color tint) { color.set(tint); packedColor = color.toFloatBits(); }
+    public void setColor(float r, float g, float b, float a) { color.set(r, g, b, a); packedColor = color.toFloatBits(); }
+    public void setColor(float packedColor) { this.packedColor = packedColor; }
+    public Color getColor() { return color; }
+    public float getPackedColor() { return packedColor; }
+
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY) { record(texture, x, y, width, height); }
+    public void draw(Texture texture, float x, float y, float width, float height, int srcX, int srcY, int srcWidth, int srcHeight, boolean flipX, boolean flipY) { record(texture, x, y, width, height); }
+    public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) { record(texture, x, y, srcWidth, srcHeight); }
+    public void draw(Texture texture, float x, float y, float width, float height, float u, float v, float u2, float v2) { record(texture, x, y, width, height); }
+    public void draw(Texture texture, float x, float y) { record(texture, x, y, 0, 0); }
+    public void draw(Texture texture, float x, float y, float width, float height) { record(texture, x, y, width, height); }
+    public void draw(Texture texture, float[] spriteVertices, int offset, int count) { record(texture, spriteVertices[offset], spriteVertices[offset + 1], 0, 0); }
+    public void draw(TextureRegion region, float x, float y) { record(region.getTexture(), x, y, 0, 0); }
+    public void draw(TextureRegion region, float x, float y, float width, float height) { record(region.getTexture(), x, y, width, height); }
+    public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation) { record(region.getTexture(), x, y, width, height); }
+    public void draw(TextureRegion region, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, boolean clockwise) { record(region.getTexture(), x, y, width, height); }
+    public void draw(TextureRegion region, float width, float height, Affine2 transform) { record(region.getTexture(), transform.m02, transform.m12, width, height); }
+
+    public void flush() { lastTexture = null; }
+
+    public void disableBlending() {}
+    public void enableBlending() {}
+    public void setBlendFunction(int srcFunc, int dstFunc) {}
+    public void setBlendFunctionSeparate(int srcFuncColor, int dstFuncColor, int srcFuncAlpha, int dstFuncAlpha) {}
+    public int getBlendSrcFunc() { return 0; }
+    public int getBlendDstFunc() { return 0; }
+    public int getBlendSrcFuncAlpha() { return 0; }
+    public int getBlendDstFuncAlpha() { return 0; }
+    public boolean isBlendingEnabled() { return true; }
+
+    public Matrix4 getProjectionMatrix() { return projection; }
+    public Matrix4 getTransformMatrix() { return transform; }
+    public void setProjectionMatrix(Matrix4 projection) { this.projection.set(projection); }
+    public void setTransformMatrix(Matrix4 transform) { this.transform.set(transform); }
+
+    public void setShader(ShaderProgram shader) {}
+    public ShaderProgram getShader() { return null; }
+
+    public boolean isDrawing() { return drawing; }
+
+    public void dispose() {}
+}
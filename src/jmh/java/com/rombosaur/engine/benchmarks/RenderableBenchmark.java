@@ -0,0 +1,51 @@
+package com.rombosaur.engine.benchmarks;
+
+import com.badlogic.gdx.utils.Array;
+import com.rombosaur.engine.renderer.Renderable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renderable.syncBounds() over the whole scene.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RenderableBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int count;
+
+    private Renderable[] items;
+
+    @Setup
+    public void setup(){
+        Headless.start();
+        Array<Renderable> renderables = Headless.spawn(count);
+        items = renderables.toArray(Renderable.class);
+    }
+
+    @Benchmark
+    public float syncBounds(){
+        float checksum = 0;
+        for(Renderable renderable : items){
+            renderable.x += 0.5f;
+            renderable.syncBounds();
+            checksum += renderable.bounds.x;
+        }
+        return checksum;
+    }
+}
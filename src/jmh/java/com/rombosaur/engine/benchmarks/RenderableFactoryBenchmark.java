@@ -0,0 +1,69 @@
+package com.rombosaur.engine.benchmarks;
+
+import com.rombosaur.engine.renderer.factories.RenderableFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spawning "count" renderables from a warm pool and freeing them all with reset(), or one by one with free().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RenderableFactoryBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int count;
+
+    private RenderableFactory<BenchRenderable> factory;
+
+    @Setup
+    public void setup(){
+        Headless.start();
+        factory = new RenderableFactory<BenchRenderable>(new RenderableFactory.Supplier<BenchRenderable>() {
+            @Override
+            public BenchRenderable create() {
+                return new BenchRenderable();
+            }
+        });
+
+        // Calienta el pool, lo que se mide es el reuso
+        factory.prewarm(count);
+    }
+
+    @Benchmark
+    public float getAndReset(){
+        float checksum = 0;
+        for(int i = 0; i < count; i++){
+            checksum += factory.get(i, i).x;
+        }
+        factory.reset();
+        return checksum;
+    }
+
+    @Benchmark
+    public float getAndFree(){
+        float checksum = 0;
+        for(int i = 0; i < count; i++){
+            checksum += factory.get(i, i).x;
+        }
+        // Siempre el primero, así cada free() tiene que mover el último a su lugar
+        for(int i = 0; i < count; i++){
+            factory.free(factory.getActives().first());
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,74 @@
+package com.rombosaur.engine.benchmarks;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.utils.Array;
+import com.rombosaur.engine.renderer.Renderable;
+import com.rombosaur.engine.renderer.Renderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole Renderer.render() frame (sort, culling, animations, draw and bounds sync).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RendererBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int count;
+
+    @Param({"false", "true"})
+    public boolean culling;
+
+    private Renderer renderer;
+    private RecordingBatch batch;
+    private Array<Renderable> renderables;
+
+    @Setup
+    public void setup(){
+        Headless.start();
+
+        batch = new RecordingBatch();
+        renderer = new Renderer(batch);
+        renderables = Headless.spawn(count);
+        renderer.prepareTextures(renderables);
+        for(Renderable renderable : renderables){
+            renderable.setAnimation("idle", renderer);
+        }
+        renderer.addToScene(renderables);
+
+        OrthographicCamera camera = new OrthographicCamera(800, 480);
+        camera.setToOrtho(false);
+        camera.update();
+        renderer.setCamera(camera);
+        renderer.setCulling(culling, 64);
+    }
+
+    @TearDown
+    public void tearDown(){
+        renderer.releaseTextures(renderables);
+    }
+
+    @Benchmark
+    public float render(){
+        batch.reset();
+        renderer.update();
+        renderer.render();
+        return batch.checksum;
+    }
+}
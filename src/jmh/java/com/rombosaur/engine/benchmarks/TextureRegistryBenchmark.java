@@ -0,0 +1,54 @@
+package com.rombosaur.engine.benchmarks;
+
+import com.rombosaur.engine.renderer.TextureRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TextureRegistry.getId() (what Renderable.setId() calls) with already registered paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TextureRegistryBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int count;
+
+    private String[] paths;
+    private TextureRegistry registry;
+
+    @Setup
+    public void setup(){
+        registry = TextureRegistry.getInstance();
+
+        // 64 texturas distintas, como un nivel grande
+        paths = new String[count];
+        for(int i = 0; i < count; i++){
+            paths[i] = "benchmarks/sheet" + (i % 64) + ".png";
+            registry.getId(paths[i]);
+        }
+    }
+
+    @Benchmark
+    public int getId(){
+        int checksum = 0;
+        for(String path : paths){
+            checksum += registry.getId(path);
+        }
+        return checksum;
+    }
+}
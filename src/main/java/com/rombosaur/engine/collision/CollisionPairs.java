@@ -0,0 +1,103 @@
+package com.rombosaur.engine.collision;
+
+import com.rombosaur.engine.renderer.Renderable;
+
+/**
+ * Reusable buffer with the colliding pairs found by the CollisionSystem.
+ * The arrays only grow (while warming up), after that filling it doesn't allocate.
+ *
+ * For each pair "i":
+ *  getA(i), getB(i): the renderables involved.
+ *  getTime(i): fraction of the last movement [0..1] where they started touching. 0 if they already overlapped.
+ *  getNormalX(i), getNormalY(i): side of B that was hit, pointing towards A (the direction you should push A).
+ */
+public class CollisionPairs {
+    private Renderable[] a, b;
+    private float[] time, normalX, normalY;
+    private int size;
+
+    public CollisionPairs(int capacity) {
+        allocate(Math.max(capacity, 8));
+    }
+
+    void add(Renderable bodyA, Renderable bodyB, float t, float nx, float ny){
+        if(size == a.length){
+            allocate(size * 2);
+        }
+
+        a[size] = bodyA;
+        b[size] = bodyB;
+        time[size] = t;
+        normalX[size] = nx;
+        normalY[size] = ny;
+        size++;
+    }
+
+    public void clear(){
+        // Suelto las referencias para no retener renderables que ya no se usan
+        for(int i = 0; i < size; i++){
+            a[i] = null;
+            b[i] = null;
+        }
+        size = 0;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public Renderable getA(int i){
+        return a[i];
+    }
+
+    public Renderable getB(int i){
+        return b[i];
+    }
+
+    /**
+     * Returns the other renderable of the pair i, or null if "renderable" is not part of it.
+     */
+    public Renderable getOther(int i, Renderable renderable){
+        if(a[i] == renderable){
+            return b[i];
+        }
+        if(b[i] == renderable){
+            return a[i];
+        }
+        return null;
+    }
+
+    public float getTime(int i){
+        return time[i];
+    }
+
+    public float getNormalX(int i){
+        return normalX[i];
+    }
+
+    public float getNormalY(int i){
+        return normalY[i];
+    }
+
+    private void allocate(int capacity){
+        Renderable[] newA = new Renderable[capacity];
+        Renderable[] newB = new Renderable[capacity];
+        float[] newTime = new float[capacity];
+        float[] newNormalX = new float[capacity];
+        float[] newNormalY = new float[capacity];
+
+        if(a != null){
+            System.arraycopy(a, 0, newA, 0, size);
+            System.arraycopy(b, 0, newB, 0, size);
+            System.arraycopy(time, 0, newTime, 0, size);
+            System.arraycopy(normalX, 0, newNormalX, 0, size);
+            System.arraycopy(normalY, 0, newNormalY, 0, size);
+        }
+
+        a = newA;
+        b = newB;
+        time = newTime;
+        normalX = newNormalX;
+        normalY = newNormalY;
+    }
+}
@@ -0,0 +1,215 @@
+package com.rombosaur.engine.collision;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.rombosaur.engine.renderer.Renderable;
+import com.rombosaur.engine.spatial.SpatialGrid;
+
+/**
+ * Collision detection between Renderables using their bounds (and offsetX/offsetY).
+ *
+ * Broadphase: every body is kept in a SpatialGrid with the area it swept in the last movement
+ * (from prevX/prevY to x/y). The grid is updated in place, so bodies that don't change cell cost nothing.
+ * Narrowphase: swept AABB with the relative movement of both bodies, so fast bodies don't tunnel through thin ones.
+ *
+ * Call update() once per frame after moving things and before the Renderer syncs prevX/prevY,
+ * the Game already does that. The results are in getPairs() until the next update().
+ */
+public class CollisionSystem {
+    private final SpatialGrid grid;
+    private final Array<Renderable> bodies;     // Renderable de cada handle de la grilla (null si está libre)
+    private final IntArray neighbours;
+    private final CollisionPairs pairs;
+
+    // Resultado del último sweep()
+    private float hitTime, hitNormalX, hitNormalY;
+
+    /**
+     * @param cellSize size of the broadphase cells in world units. Around 2x the size of a common body works fine.
+     */
+    public CollisionSystem(float cellSize) {
+        grid = new SpatialGrid(cellSize);
+        bodies = new Array<Renderable>();
+        neighbours = new IntArray();
+        pairs = new CollisionPairs(64);
+    }
+
+    /**
+     * Registers a renderable. It must have bounds (setBounds()).
+     */
+    public void add(Renderable renderable){
+        if(renderable.bounds == null){
+            Gdx.app.log("WARN", "CollisionSystem - El renderable \""+renderable.texturePath+"\" no tiene bounds, no se agrega.");
+            return;
+        }
+        if(renderable.collisionHandle != Renderable.UNINITIALIZED_ID){
+            return;
+        }
+
+        float x = Math.min(renderable.x, renderable.prevX) + renderable.offsetX;
+        float y = Math.min(renderable.y, renderable.prevY) + renderable.offsetY;
+        int handle = grid.add(x, y, sweptWidth(renderable), sweptHeight(renderable));
+        while(bodies.size <= handle){
+            bodies.add(null);
+        }
+        bodies.set(handle, renderable);
+        renderable.collisionHandle = handle;
+    }
+
+    public void remove(Renderable renderable){
+        int handle = renderable.collisionHandle;
+        if(handle == Renderable.UNINITIALIZED_ID){
+            return;
+        }
+
+        grid.remove(handle);
+        bodies.set(handle, null);
+        renderable.collisionHandle = Renderable.UNINITIALIZED_ID;
+    }
+
+    public void clear(){
+        for(Renderable body : bodies){
+            if(body != null){
+                body.collisionHandle = Renderable.UNINITIALIZED_ID;
+            }
+        }
+        bodies.clear();
+        grid.clear();
+        pairs.clear();
+    }
+
+    /**
+     * Moves the bodies in the grid and finds every colliding pair.
+     */
+    public void update(){
+        pairs.clear();
+
+        for(int handle = 0; handle < bodies.size; handle++){
+            Renderable body = bodies.get(handle);
+            if(body != null){
+                float x = Math.min(body.x, body.prevX) + body.offsetX;
+                float y = Math.min(body.y, body.prevY) + body.offsetY;
+                grid.update(handle, x, y, sweptWidth(body), sweptHeight(body));
+            }
+        }
+
+        for(int handle = 0; handle < bodies.size; handle++){
+            Renderable body = bodies.get(handle);
+            if(body == null){
+                continue;
+            }
+
+            neighbours.clear();
+            grid.queryNeighbours(handle, neighbours);
+            for(int i = 0; i < neighbours.size; i++){
+                int other = neighbours.get(i);
+                if(other < handle){
+                    continue; // Ese par ya se evaluó desde el otro lado
+                }
+
+                Renderable otherBody = bodies.get(other);
+                if(sweep(body, otherBody)){
+                    pairs.add(body, otherBody, hitTime, hitNormalX, hitNormalY);
+                }
+            }
+        }
+    }
+
+    public CollisionPairs getPairs(){
+        return pairs;
+    }
+
+    /**
+     * Swept AABB. B is considered still and A moves with the relative movement of both.
+     * Leaves the result in hitTime, hitNormalX and hitNormalY.
+     *
+     * @return true if they touch at some point of the movement
+     */
+    private boolean sweep(Renderable a, Renderable b){
+        float aw = a.bounds.width, ah = a.bounds.height;
+        float bw = b.bounds.width, bh = b.bounds.height;
+        float ax = a.prevX + a.offsetX, ay = a.prevY + a.offsetY;
+        float bx = b.prevX + b.offsetX, by = b.prevY + b.offsetY;
+        float vx = (a.x - a.prevX) - (b.x - b.prevX);
+        float vy = (a.y - a.prevY) - (b.y - b.prevY);
+
+        // Ya estaban superpuestos antes de moverse
+        if(ax < bx + bw && ax + aw > bx && ay < by + bh && ay + ah > by){
+            hitTime = 0;
+            resolveOverlapNormal(ax, ay, aw, ah, bx, by, bw, bh);
+            return true;
+        }
+
+        float entryX, exitX, entryY, exitY;
+        if(vx > 0){
+            entryX = (bx - (ax + aw)) / vx;
+            exitX = ((bx + bw) - ax) / vx;
+        } else if(vx < 0){
+            entryX = ((bx + bw) - ax) / vx;
+            exitX = (bx - (ax + aw)) / vx;
+        } else if(ax < bx + bw && ax + aw > bx){
+            entryX = Float.NEGATIVE_INFINITY;
+            exitX = Float.POSITIVE_INFINITY;
+        } else {
+            return false; // No se mueve en X y no se superponen en X
+        }
+
+        if(vy > 0){
+            entryY = (by - (ay + ah)) / vy;
+            exitY = ((by + bh) - ay) / vy;
+        } else if(vy < 0){
+            entryY = ((by + bh) - ay) / vy;
+            exitY = (by - (ay + ah)) / vy;
+        } else if(ay < by + bh && ay + ah > by){
+            entryY = Float.NEGATIVE_INFINITY;
+            exitY = Float.POSITIVE_INFINITY;
+        } else {
+            return false;
+        }
+
+        float entry = Math.max(entryX, entryY);
+        float exit = Math.min(exitX, exitY);
+        if(entry >= exit || entry < 0 || entry > 1){
+            return false;
+        }
+
+        hitTime = entry;
+        if(entryX > entryY){
+            hitNormalX = vx > 0 ? -1 : 1;
+            hitNormalY = 0;
+        } else {
+            hitNormalX = 0;
+            hitNormalY = vy > 0 ? -1 : 1;
+        }
+        return true;
+    }
+
+    /**
+     * For bodies that were already overlapping the normal is the axis with less penetration.
+     */
+    private void resolveOverlapNormal(float ax, float ay, float aw, float ah, float bx, float by, float bw, float bh){
+        float pushLeft = (ax + aw) - bx;
+        float pushRight = (bx + bw) - ax;
+        float pushDown = (ay + ah) - by;
+        float pushUp = (by + bh) - ay;
+
+        float minX = Math.min(pushLeft, pushRight);
+        float minY = Math.min(pushDown, pushUp);
+        if(minX < minY){
+            hitNormalX = pushLeft < pushRight ? -1 : 1;
+            hitNormalY = 0;
+        } else {
+            hitNormalX = 0;
+            hitNormalY = pushDown < pushUp ? -1 : 1;
+        }
+    }
+
+    private static float sweptWidth(Renderable body){
+        return body.bounds.width + Math.abs(body.x - body.prevX);
+    }
+
+    private static float sweptHeight(Renderable body){
+        return body.bounds.height + Math.abs(body.y - body.prevY);
+    }
+}
@@ -0,0 +1,115 @@
+package com.rombosaur.engine.metrics;
+
+/**
+ * Per-frame counters of the engine, each one with a Histogram of the last frames.
+ *
+ * The Renderer and the Game fill the counters between beginFrame() and endFrame() (the Game calls both).
+ * get() returns the value of the last finished frame. Nothing here allocates, so it can stay enabled in
+ * production builds.
+ */
+public class FrameMetrics {
+    public enum Metric {
+        /** Visible renderables in the scene */
+        SUBMITTED,
+        /** Renderables skipped by the camera culling */
+        CULLED,
+        /** Renderables that reached the Batch */
+        DRAWN,
+        /** Consecutive draws with a different Texture */
+        TEXTURE_SWITCHES,
+        /** Batch flushes (SpriteBatch.renderCalls), only available with a SpriteBatch */
+        DRAW_CALLS,
+        /** Animations applied by the Renderer */
+        ANIMATION_CHANGES,
+        /** Renderer.update(), collisions and Stage.act() */
+        UPDATE_NANOS,
+        /** Renderer.render() */
+        RENDER_NANOS,
+        /** Current Screen's render() */
+        SCREEN_NANOS,
+        /** Stage.draw() */
+        STAGE_NANOS;
+
+        static final Metric[] ALL = values();
+    }
+
+    public static final int DEFAULT_WINDOW = 120;
+
+    private final long[] current;
+    private final long[] last;
+    private final Histogram[] histograms;
+    private boolean enabled;
+
+    public FrameMetrics() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window amount of frames kept in each Histogram
+     */
+    public FrameMetrics(int window) {
+        int count = Metric.ALL.length;
+        current = new long[count];
+        last = new long[count];
+        histograms = new Histogram[count];
+        for(int i = 0; i < count; i++){
+            histograms[i] = new Histogram(window);
+        }
+        enabled = true;
+    }
+
+    public void beginFrame(){
+        for(int i = 0; i < current.length; i++){
+            current[i] = 0;
+        }
+    }
+
+    public void endFrame(){
+        if(!enabled){
+            return;
+        }
+
+        for(int i = 0; i < current.length; i++){
+            last[i] = current[i];
+            histograms[i].add(current[i]);
+        }
+    }
+
+    public void add(Metric metric, long value){
+        if(enabled) {
+            current[metric.ordinal()] += value;
+        }
+    }
+
+    public void increment(Metric metric){
+        if(enabled) {
+            current[metric.ordinal()]++;
+        }
+    }
+
+    /**
+     * @return the value of the metric in the last finished frame
+     */
+    public long get(Metric metric){
+        return last[metric.ordinal()];
+    }
+
+    /**
+     * @param percentile from 0 to 1
+     */
+    public long getPercentile(Metric metric, float percentile){
+        return histograms[metric.ordinal()].getPercentile(percentile);
+    }
+
+    public Histogram getHistogram(Metric metric){
+        return histograms[metric.ordinal()];
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+}
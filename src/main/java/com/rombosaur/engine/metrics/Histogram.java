@@ -0,0 +1,75 @@
+package com.rombosaur.engine.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window with the last N samples of a metric.
+ * Adding a sample is O(1). Percentiles sort a copy of the window in a preallocated array,
+ * so asking for them doesn't allocate either (just don't ask on every frame if the window is big).
+ */
+public class Histogram {
+    private final long[] samples;
+    private final long[] sorted;
+    private int next;
+    private int count;
+    private boolean dirty;
+
+    public Histogram(int window) {
+        samples = new long[window];
+        sorted = new long[window];
+    }
+
+    public void add(long value){
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if(count < samples.length){
+            count++;
+        }
+        dirty = true;
+    }
+
+    /**
+     * @param percentile from 0 to 1 (0.5 is the median, 0.99 the p99)
+     * @return the value of that percentile in the window, 0 if there are no samples
+     */
+    public long getPercentile(float percentile){
+        if(count == 0){
+            return 0;
+        }
+
+        if(dirty){
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            dirty = false;
+        }
+
+        int index = (int)(percentile * (count - 1) + 0.5f);
+        return sorted[Math.min(Math.max(index, 0), count - 1)];
+    }
+
+    public long getMax(){
+        return getPercentile(1);
+    }
+
+    public double getAverage(){
+        if(count == 0){
+            return 0;
+        }
+
+        long total = 0;
+        for(int i = 0; i < count; i++){
+            total += samples[i];
+        }
+        return (double)total / count;
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    public void clear(){
+        next = 0;
+        count = 0;
+        dirty = false;
+    }
+}
@@ -0,0 +1,119 @@
+package com.rombosaur.engine.metrics;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Touchable;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.rombosaur.engine.metrics.FrameMetrics.Metric;
+import com.rombosaur.engine.screens.Game;
+import com.rombosaur.engine.screens.Widget;
+
+/**
+ * Lightweight on-screen overlay with the FrameMetrics (last frame, p50 and p99).
+ * Add it to the Stage and show()/hide() it. The text is rebuilt a few times per second, not on every frame.
+ */
+public class StatsOverlay extends Actor implements Widget, Disposable {
+    private static final float REFRESH_TIME = 0.5f;
+
+    private final FrameMetrics metrics;
+    private final BitmapFont font;
+    private final boolean ownsFont;
+    private final StringBuilder text;
+    private float sinceRefresh;
+
+    /**
+     * Uses libgdx's default font (and disposes it with the overlay).
+     */
+    public StatsOverlay(FrameMetrics metrics) {
+        this(metrics, new BitmapFont(), true);
+    }
+
+    public StatsOverlay(FrameMetrics metrics, BitmapFont font) {
+        this(metrics, font, false);
+    }
+
+    private StatsOverlay(FrameMetrics metrics, BitmapFont font, boolean ownsFont) {
+        this.metrics = metrics;
+        this.font = font;
+        this.ownsFont = ownsFont;
+        text = new StringBuilder(512);
+        sinceRefresh = REFRESH_TIME;
+        setTouchable(Touchable.disabled);
+    }
+
+    @Override
+    public void act(float delta) {
+        super.act(delta);
+
+        sinceRefresh += delta;
+        if(sinceRefresh >= REFRESH_TIME && isVisible()){
+            sinceRefresh = 0;
+            rebuildText();
+            invalidateUi();
+        }
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        font.draw(batch, text, getX(), getY());
+    }
+
+    private void rebuildText(){
+        text.setLength(0);
+        appendCount("sprites ", Metric.SUBMITTED);
+        appendCount("culled  ", Metric.CULLED);
+        appendCount("drawn   ", Metric.DRAWN);
+        appendCount("tex sw  ", Metric.TEXTURE_SWITCHES);
+        appendCount("calls   ", Metric.DRAW_CALLS);
+        appendCount("anims   ", Metric.ANIMATION_CHANGES);
+        appendTime("update  ", Metric.UPDATE_NANOS);
+        appendTime("render  ", Metric.RENDER_NANOS);
+        appendTime("screen  ", Metric.SCREEN_NANOS);
+        appendTime("stage   ", Metric.STAGE_NANOS);
+    }
+
+    private void appendCount(String label, Metric metric){
+        text.append(label)
+            .append(metrics.get(metric)).append("  p50 ")
+            .append(metrics.getPercentile(metric, 0.5f)).append("  p99 ")
+            .append(metrics.getPercentile(metric, 0.99f)).append('\n');
+    }
+
+    /**
+     * Times in microseconds, StringBuilder.append(float) allocates.
+     */
+    private void appendTime(String label, Metric metric){
+        text.append(label)
+            .append(metrics.get(metric) / 1000).append("us  p50 ")
+            .append(metrics.getPercentile(metric, 0.5f) / 1000).append("us  p99 ")
+            .append(metrics.getPercentile(metric, 0.99f) / 1000).append("us\n");
+    }
+
+    @Override
+    public void show() {
+        setVisible(true);
+        sinceRefresh = REFRESH_TIME;
+        invalidateUi();
+    }
+
+    @Override
+    public void hide() {
+        setVisible(false);
+        invalidateUi();
+    }
+
+    private void invalidateUi(){
+        if(Game.game != null){
+            Game.game.invalidateUi();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if(ownsFont){
+            font.dispose();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectIntMap;
 import com.badlogic.gdx.utils.ObjectMap;
 
 /**
@@ -14,18 +15,48 @@ import com.badlogic.gdx.utils.ObjectMap;
  * Cada objeto que utilice la textura X se va a renderizar por el objeto AnimatedTexture
  * correspondiente a la textura X.
  *
+ * Cada nombre de animación se compila a un handle int (denso, por textura) en el buildAnimations().
+ * Con el handle la animación se resuelve indexando un array, sin hashear strings.
+ *
  * Created by rombus on 28/01/17.
  */
 public class AnimatedTexture implements Disposable{
-    private final Texture texture;
+    private final Texture texture;            // null si los frames viven en una página de atlas compartida (no es nuestra)
     private final TextureRegion[] frames;     // Frames del spritesheet
-    private float curX, curY, curWidth, curHeight;
     private ObjectMap<String, Animation> animations; // Lista de animaciones disponibles
     private ObjectMap<String, AnimationData> animationsList; // List that holds the animations of this Texture
+    private ObjectIntMap<String> handles;       // Nombre -> handle. Un nombre mantiene su handle aunque se vuelva a llamar al buildAnimations()
+    private Animation[] animationsByHandle;
+    private boolean[] loopsByHandle;
+
+    /**
+     * Handle value for "no animation"
+     */
+    public static final int NO_ANIMATION = -1;
 
     public AnimatedTexture(String textureFrames, int framesCol, int framesRow) {
-        this.texture =  new Texture(textureFrames);
-        frames = getFramesArrayFromSheet(texture, framesCol, framesRow);
+        this(new Texture(textureFrames), framesCol, framesRow);
+    }
+
+    /**
+     * The AnimatedTexture takes ownership of the texture, it's disposed with it.
+     */
+    public AnimatedTexture(Texture texture, int framesCol, int framesRow) {
+        this.texture = texture;
+        frames = getFramesArrayFromSheet(new TextureRegion(texture), framesCol, framesRow);
+    }
+
+    /**
+     * Builds the frames from a region of a shared atlas page.
+     * The page texture is owned by whoever packed the atlas, so dispose() won't free it.
+     *
+     * @param sheet Region that contains the whole spritesheet
+     * @param framesCol Cantidad de columnas en el sheet
+     * @param framesRow Cantidad de filas en el sheet
+     */
+    public AnimatedTexture(TextureRegion sheet, int framesCol, int framesRow) {
+        this.texture = null;
+        frames = getFramesArrayFromSheet(sheet, framesCol, framesRow);
     }
 
     /**
@@ -37,19 +68,62 @@ public class AnimatedTexture implements Disposable{
     public void buildAnimations(ObjectMap<String, AnimationData> animations){
         this.animationsList = animations;
         this.animations = addAnimations(animations);
+        compileHandles();
+    }
+
+    /**
+     * Uses the given name -> handle table instead of its own. The TextureRegistry passes the one of the id,
+     * so an AnimatedTexture created again for the same texture (reload()) keeps the handles.
+     */
+    void setHandles(ObjectIntMap<String> handles){
+        this.handles = handles;
+        if(animations != null){
+            compileHandles(); // Ya tenía animaciones, se pasan a la tabla nueva
+        }
+    }
+
+    /**
+     * Assigns a handle to every new animation name and fills the arrays indexed by handle.
+     */
+    private void compileHandles(){
+        if(handles == null){
+            handles = new ObjectIntMap<String>();
+        }
+
+        ObjectMap.Keys<String> names = animations.keys();
+        while(names.hasNext()){
+            String name = names.next();
+            if(!handles.containsKey(name)){
+                handles.put(name, handles.size);
+            }
+        }
+
+        animationsByHandle = new Animation[handles.size];
+        loopsByHandle = new boolean[handles.size];
+        ObjectIntMap.Entries<String> it = handles.entries();
+        while(it.hasNext()){
+            ObjectIntMap.Entry<String> cur = it.next();
+            AnimationData data = animationsList.get(cur.key);
+            if(data != null){ // La tabla compartida puede tener nombres que este build no trae
+                animationsByHandle[cur.value] = animations.get(cur.key);
+                loopsByHandle[cur.value] = data.loop;
+            }
+        }
     }
 
     /**
      * Convierte una grilla de frames en un array TextureRegion para pasarselo a la
      * clase de animación de libgdx.
      *
+     * Los frames son relativos a la región, así que funciona igual con una textura suelta o con una página de atlas.
+     *
      * @param textureFrames Grilla de frames
      * @param framesCol Cantidad de columnas en el textureFrames
      * @param framesRow Cantidad de filas en el textureFrames
      * @return
      */
-    private TextureRegion[] getFramesArrayFromSheet(Texture textureFrames, int framesCol, int framesRow){
-        TextureRegion[][] tmp = TextureRegion.split(textureFrames, textureFrames.getWidth() / framesCol, textureFrames.getHeight() / framesRow);
+    private TextureRegion[] getFramesArrayFromSheet(TextureRegion textureFrames, int framesCol, int framesRow){
+        TextureRegion[][] tmp = textureFrames.split(textureFrames.getRegionWidth() / framesCol, textureFrames.getRegionHeight() / framesRow);
         TextureRegion[] frames = new TextureRegion[framesCol * framesRow];
 
         int frameIdx= 0;
@@ -103,45 +177,139 @@ public class AnimatedTexture implements Disposable{
         return animations.get(name);
     }
 
+    /**
+     * @param name nombre de la animación
+     * @return the handle of the animation, to be used with getAnimation(int) and Renderable.setAnimation(int)
+     */
+    public int getAnimationHandle(String name){
+        int handle = handles == null ? NO_ANIMATION : handles.get(name, NO_ANIMATION);
+        if(handle == NO_ANIMATION){ throw new RuntimeException("Se pidió el handle de una animación inexistente: \""+name+"\"!!!"); }
+        return handle;
+    }
+
+    public Animation getAnimation(int handle){
+        return animationsByHandle[handle];
+    }
+
+    public boolean isLooping(int handle){
+        return loopsByHandle[handle];
+    }
+
     /**
      * Método    stateless de draw, va a renderizar el renderable que le pases.
      * Saca toda la info de ahí, no hay nada que se guarde en este objeto.
+     * El animElapsedTime lo avanza el Renderer antes de llamar a este método.
      *
      */
     public void draw(Batch batch, Renderable renderable) {
-        if(renderable.curAnimation != null) {
-            renderable.animElapsedTime += Gdx.graphics.getDeltaTime();
-            TextureRegion curFrame = renderable.curAnimation.getKeyFrame(renderable.animElapsedTime, renderable.looping);
-
-            curX = renderable.x;
-            curY = renderable.y;
-            curWidth = renderable.width;
-            curHeight = renderable.height;
+        draw(batch, renderable, renderable.x, renderable.y);
+    }
 
+    /**
+     * Same as draw(batch, renderable) but in the given position instead of renderable.x/y (interpolated positions).
+     */
+    public void draw(Batch batch, Renderable renderable, float x, float y) {
+        if(renderable.curAnimation != null) {
+            TextureRegion curFrame = getKeyFrame(renderable.curAnimation, renderable.animElapsedTime, renderable.looping);
+            float width = renderable.width;
+            float height = renderable.height;
 
             if(renderable.flipVertically){
-                curY += renderable.height;
-                curHeight *= -1;
+                y += height;
+                height *= -1;
             }
 
             if(renderable.flipHorizontally){
-                curX += renderable.width;
-                curWidth *= -1;
+                x += width;
+                width *= -1;
             }
 
-            batch.draw(curFrame, curX, curY, curWidth, curHeight);
+            batch.draw(curFrame, x, y, width, height);
 
         } else {
             Gdx.app.log("WARN", "AnimatedTexture sin animación. No se muestra nada!!!");
         }
     }
 
+    /**
+     * Records the current key frame of the renderable in the slot "index" of the buffer (flips as negative sizes).
+     * It only reads the renderable and writes that slot, so different slots can be recorded from different threads.
+     * If the renderable has no animation the slot is left empty.
+     */
+    static void record(Renderable renderable, float x, float y, DrawCommandBuffer commands, int index){
+        Animation animation = renderable.curAnimation;
+        if(animation == null){
+            commands.skip(index);
+            return;
+        }
+
+        float width = renderable.width;
+        float height = renderable.height;
+
+        if(renderable.flipVertically){
+            y += height;
+            height *= -1;
+        }
+
+        if(renderable.flipHorizontally){
+            x += width;
+            width *= -1;
+        }
+
+        commands.set(index, getKeyFrame(animation, renderable.animElapsedTime, renderable.looping), x, y, width, height);
+    }
+
+    /**
+     * Same frame as Animation.getKeyFrame(time, looping), without touching the Animation.
+     * The libgdx one changes the play mode (and the last frame cache) of the Animation while it runs,
+     * and the Animation objects are shared by every renderable with this texture.
+     */
+    static TextureRegion getKeyFrame(Animation animation, float time, boolean looping){
+        TextureRegion[] keyFrames = animation.getKeyFrames();
+        if(keyFrames.length == 1){
+            return keyFrames[0];
+        }
+
+        int index = (int)(time / animation.getFrameDuration());
+        if(looping){
+            index = index % keyFrames.length;
+        } else {
+            index = Math.min(keyFrames.length - 1, index);
+        }
+        return keyFrames[index];
+    }
+
+    /**
+     * Estimated GPU memory used by this texture (RGBA8888).
+     * If the frames are in a shared atlas page, only the area of the sheet is counted.
+     */
+    public long getSizeInBytes(){
+        if(texture != null){
+            return (long)texture.getWidth() * texture.getHeight() * 4;
+        }
+
+        long size = 0;
+        for(TextureRegion frame : frames){
+            size += (long)frame.getRegionWidth() * frame.getRegionHeight() * 4;
+        }
+        return size;
+    }
+
+    /**
+     * @return the Texture where the frames are (the atlas page if it's packed)
+     */
+    public Texture getTexture(){
+        return frames[0].getTexture();
+    }
+
     public ObjectMap<String, AnimationData> getAnimationsList(){
         return animationsList;
     }
 
     @Override
     public void dispose() {
-        texture.dispose();
+        if(texture != null) {
+            texture.dispose();
+        }
     }
 }
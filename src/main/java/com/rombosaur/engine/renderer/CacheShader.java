@@ -0,0 +1,77 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.reflect.ClassReflection;
+import com.badlogic.gdx.utils.reflect.Field;
+import com.badlogic.gdx.utils.reflect.ReflectionException;
+
+/**
+ * El mismo shader que arma SpriteCache por defecto, para compartirlo entre varios SpriteCache.
+ *
+ * new SpriteCache(size, false) compiles its own ShaderProgram, so every cache costs a shader compile and link.
+ * Pass this one with new SpriteCache(size, shader, false) instead. (SpriteCache.createDefaultShader() is not
+ * public in this libgdx version.)
+ *
+ * SpriteCache.dispose() disposes the shader the cache was created with, also one that was passed in. So the caches
+ * that share it are freed with disposeMesh(), and the shader is disposed once, after all of them.
+ */
+public class CacheShader {
+    private static final String VERTEX = "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "uniform mat4 u_projectionViewMatrix;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "\n"
+            + "void main()\n"
+            + "{\n"
+            + "   v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "   v_color.a = v_color.a * (255.0/254.0);\n"
+            + "   v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "   gl_Position =  u_projectionViewMatrix * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "}\n";
+
+    private static final String FRAGMENT = "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "uniform sampler2D u_texture;\n"
+            + "void main()\n"
+            + "{\n"
+            + "  gl_FragColor = v_color * texture2D(u_texture, v_texCoords);\n"
+            + "}";
+
+    private static Field meshField;
+
+    private CacheShader() {}
+
+    /**
+     * Compiles the shader. Render thread (needs the GL context).
+     */
+    public static ShaderProgram create(){
+        ShaderProgram shader = new ShaderProgram(VERTEX, FRAGMENT);
+        if(!shader.isCompiled()){
+            throw new RuntimeException("CacheShader - No compiló el shader del SpriteCache: " + shader.getLog());
+        }
+        return shader;
+    }
+
+    /**
+     * Frees the Mesh of a cache that uses a shared shader, without touching the shader (SpriteCache.dispose()
+     * would dispose it). The Mesh is private in SpriteCache, so it's reached by reflection.
+     */
+    public static void disposeMesh(SpriteCache cache){
+        try {
+            if(meshField == null){
+                meshField = ClassReflection.getDeclaredField(SpriteCache.class, "mesh");
+                meshField.setAccessible(true);
+            }
+            ((Mesh) meshField.get(cache)).dispose();
+        } catch (ReflectionException e) {
+            throw new RuntimeException("CacheShader - No se pudo liberar el Mesh del SpriteCache", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.rombosaur.engine.renderer;
+
+/**
+ * Something that isn't a Renderable but is drawn by the Renderer through the command buffer, in its layer
+ * (RenderableStore, ParticleEmitter). Everything is called from the render thread except record().
+ */
+interface CommandSource {
+    int getLayer();
+
+    /**
+     * @return command slots needed this frame (one per sprite)
+     */
+    int size();
+
+    /**
+     * One step of the simulation, with tick() (fixed timestep) or render() (variable timestep).
+     */
+    void step(float delta);
+
+    /**
+     * Start of a step: the current positions become the previous ones, for the interpolation.
+     */
+    void snapshotPositions();
+
+    /**
+     * Before recording, on the render thread: reload evicted textures and touch the used ones.
+     */
+    void prepare(TextureRegistry textures);
+
+    /**
+     * @return true if the next frame would look different even if nobody touches the source
+     *         (animations or particles still running). Render thread, after record().
+     */
+    boolean isAnimating(TextureRegistry textures, float time);
+
+    /**
+     * Records the sprites [from, to) in the slots start + i of the buffer, leaving empty the ones that
+     * aren't drawn. It may run in parallel for disjoint ranges, so it only writes its own slots.
+     */
+    void record(int from, int to, DrawCommandBuffer commands, int start, RecordContext context);
+}
@@ -0,0 +1,189 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * Draw commands (region + rectangle) recorded between the scene traversal and the Batch.
+ * Flips are recorded as negative widths/heights, the Batch handles them.
+ *
+ * The buffer is reused between frames, it only grows. Commands can be recorded in order with add(),
+ * or by index with reserve() + set() (each thread writing its own slots). submit() sends them to the
+ * Batch in index order and doesn't consume them, so the same frame can be replayed (another viewport, a FrameBuffer...).
+ */
+public class DrawCommandBuffer {
+    private static final int STRIDE = 4; // x, y, width, height
+
+    private TextureRegion[] regions;    // null = slot sin nada que dibujar
+    private float[] rects;
+    private int size;
+    private Texture lastTexture;        // Stats del submit
+    private int textureSwitches;
+
+    public DrawCommandBuffer() {
+        this(256);
+    }
+
+    public DrawCommandBuffer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        regions = new TextureRegion[capacity];
+        rects = new float[capacity * STRIDE];
+    }
+
+    /**
+     * Removes every command (and the references to the regions).
+     */
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            regions[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Appends a command.
+     * @return its index
+     */
+    public int add(TextureRegion region, float x, float y, float width, float height){
+        ensureCapacity(size + 1);
+        set(size, region, x, y, width, height);
+        return size++;
+    }
+
+    /**
+     * Clears the buffer and leaves "count" empty slots, to be filled with set() (from any thread, one slot per thread).
+     */
+    public void reserve(int count){
+        clear();
+        append(count);
+    }
+
+    /**
+     * Adds "count" empty slots at the end, to be filled with set().
+     * @return index of the first one
+     */
+    public int append(int count){
+        ensureCapacity(size + count);
+        int start = size;
+        size += count;
+        return start;
+    }
+
+    public void set(int index, TextureRegion region, float x, float y, float width, float height){
+        regions[index] = region;
+        int i = index * STRIDE;
+        rects[i] = x;
+        rects[i + 1] = y;
+        rects[i + 2] = width;
+        rects[i + 3] = height;
+    }
+
+    /**
+     * Leaves the slot empty, submit() skips it.
+     */
+    public void skip(int index){
+        regions[index] = null;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Draws every command, in index order. Must be called between batch.begin() and batch.end().
+     *
+     * @return amount of sprites drawn (empty slots don't count)
+     */
+    public int submit(Batch batch){
+        resetStats();
+        return submit(batch, 0, size);
+    }
+
+    /**
+     * Draws the commands [from, to). Several ranges can be submitted one after the other (in any order),
+     * the texture switches are accumulated until resetStats().
+     *
+     * @return amount of sprites drawn (empty slots don't count)
+     */
+    public int submit(Batch batch, int from, int to){
+        int drawn = 0;
+        TextureRegion[] regions = this.regions;
+        float[] rects = this.rects;
+
+        for(int index = from, i = from * STRIDE; index < to; index++, i += STRIDE){
+            TextureRegion region = regions[index];
+            if(region == null){
+                continue;
+            }
+
+            batch.draw(region, rects[i], rects[i + 1], rects[i + 2], rects[i + 3]);
+            drawn++;
+            if(region.getTexture() != lastTexture){
+                lastTexture = region.getTexture();
+                textureSwitches++;
+            }
+        }
+
+        return drawn;
+    }
+
+    /**
+     * @return true if both buffers have the same commands (same regions and rectangles, in the same order)
+     */
+    public boolean sameAs(DrawCommandBuffer other){
+        if(size != other.size){
+            return false;
+        }
+        TextureRegion[] otherRegions = other.regions;
+        for(int i = 0; i < size; i++){
+            if(regions[i] != otherRegions[i]){
+                return false;
+            }
+        }
+        float[] otherRects = other.rects;
+        for(int i = 0, n = size * STRIDE; i < n; i++){
+            if(rects[i] != otherRects[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the commands of this buffer with a copy of the other's.
+     */
+    public void copyFrom(DrawCommandBuffer other){
+        clear();
+        ensureCapacity(other.size);
+        System.arraycopy(other.regions, 0, regions, 0, other.size);
+        System.arraycopy(other.rects, 0, rects, 0, other.size * STRIDE);
+        size = other.size;
+    }
+
+    public void resetStats(){
+        lastTexture = null;
+        textureSwitches = 0;
+    }
+
+    /**
+     * @return consecutive commands with a different Texture since the last resetStats() (submit(batch) resets it)
+     */
+    public int getTextureSwitches(){
+        return textureSwitches;
+    }
+
+    private void ensureCapacity(int capacity){
+        if(capacity <= regions.length){
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, regions.length * 2);
+        TextureRegion[] newRegions = new TextureRegion[newCapacity];
+        System.arraycopy(regions, 0, newRegions, 0, size);
+        float[] newRects = new float[newCapacity * STRIDE];
+        System.arraycopy(rects, 0, newRects, 0, size * STRIDE);
+        regions = newRegions;
+        rects = newRects;
+    }
+}
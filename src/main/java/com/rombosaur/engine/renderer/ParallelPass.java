@@ -0,0 +1,156 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Runs a loop over [0, count) split in chunks, one per thread. The calling thread does the first chunk
+ * and waits for the others, so when run() returns everything is done.
+ *
+ * The worker threads are created once and wait between passes, running a pass doesn't allocate.
+ * Each chunk must only write the elements of its own range, that way the result is the same as running it serially.
+ */
+class ParallelPass implements Disposable {
+    /**
+     * Loop body for the range [from, to).
+     */
+    interface Body {
+        void run(int from, int to);
+    }
+
+    /**
+     * Below this amount of elements it's not worth waking up the workers.
+     */
+    private static final int MIN_PARALLEL = 2048;
+
+    private final Thread[] workers;
+    private final Object lock = new Object();
+
+    // Estado del pass actual, protegido por lock
+    private Body body;
+    private int count;
+    private int chunkSize;
+    private int generation;
+    private int pending;
+    private Throwable error;
+    private boolean disposed;
+
+    /**
+     * @param threads total threads used by a pass, counting the calling one. 1 runs everything serially.
+     */
+    ParallelPass(int threads) {
+        workers = new Thread[Math.max(threads, 1) - 1];
+        for(int i = 0; i < workers.length; i++){
+            workers[i] = new Thread(new Worker(i + 1), "Renderer-update-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    void run(Body body, int count){
+        if(workers.length == 0 || count < MIN_PARALLEL){
+            body.run(0, count);
+            return;
+        }
+
+        int size = (count + workers.length) / (workers.length + 1);
+        synchronized (lock){
+            this.body = body;
+            this.count = count;
+            this.chunkSize = size;
+            this.pending = workers.length;
+            this.error = null;
+            generation++;
+            lock.notifyAll();
+        }
+
+        Throwable callerError = null;
+        try {
+            body.run(0, Math.min(size, count));
+        } catch (Throwable t){
+            callerError = t;
+        }
+
+        synchronized (lock){
+            while(pending > 0){
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            this.body = null;
+
+            if(callerError == null){
+                callerError = error;
+            }
+        }
+
+        if(callerError != null){
+            throw new GdxRuntimeException("ParallelPass - Falló uno de los chunks", callerError);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (lock){
+            disposed = true;
+            lock.notifyAll();
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final int index;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            int seen = 0;
+            while(true){
+                Body curBody;
+                int from, to;
+
+                synchronized (lock){
+                    while(generation == seen && !disposed){
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if(disposed){
+                        return;
+                    }
+
+                    seen = generation;
+                    curBody = body;
+                    from = index * chunkSize;
+                    to = Math.min(from + chunkSize, count);
+                }
+
+                Throwable failure = null;
+                try {
+                    if(from < to) {
+                        curBody.run(from, to);
+                    }
+                } catch (Throwable t){
+                    failure = t;
+                }
+
+                synchronized (lock){
+                    if(failure != null && error == null){
+                        error = failure;
+                    }
+                    pending--;
+                    if(pending == 0){
+                        lock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+}
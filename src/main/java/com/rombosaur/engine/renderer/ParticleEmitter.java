@@ -0,0 +1,334 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Emisor de partículas (chispas, polvo, humo...) sin un Renderable por partícula.
+ *
+ * Every particle lives in primitive arrays allocated in the constructor (maxParticles of each), they're
+ * simulated in bulk by the Renderer (tick() or render()) and dead ones are swapped out with the last one,
+ * so there's no allocation at all while it runs. When the emitter is full new particles are dropped.
+ *
+ * The frame of each particle goes through the frames of the animation along its life (first frame when it's
+ * born, last one when it dies), so a one shot explosion sheet works as is. The size goes from startSize to
+ * endSize the same way. The texture must be prepared with Renderer.prepareTextures().
+ *
+ * Created with Renderer.createEmitter().
+ */
+public class ParticleEmitter {
+    private final Renderer renderer;
+    private final int layer;
+    private final int maxParticles;
+
+    // Denso, de 0 a count
+    private int count;
+    private final float[] x, y, prevX, prevY;
+    private final float[] velocityX, velocityY;
+    private final float[] age, life;
+
+    private int textureId;
+    private int animation;
+
+    // Emisión
+    private float emitX, emitY;
+    private float spreadX, spreadY;     // Tamaño del área de emisión, centrada en emitX/emitY
+    private float rate;                 // Partículas por segundo
+    private float emitAccumulator;
+    private boolean emitting;
+    private float minAngle, maxAngle;   // Grados
+    private float minSpeed, maxSpeed;
+    private float minLife, maxLife;
+    private float startSize, endSize;
+    private float gravityX, gravityY;
+
+    final CommandSource source;         // Lo que agrega el Renderer a sus sources
+
+    ParticleEmitter(Renderer renderer, int layer, int maxParticles) {
+        this.renderer = renderer;
+        this.layer = layer;
+        this.maxParticles = Math.max(maxParticles, 1);
+        x = new float[this.maxParticles];
+        y = new float[this.maxParticles];
+        prevX = new float[this.maxParticles];
+        prevY = new float[this.maxParticles];
+        velocityX = new float[this.maxParticles];
+        velocityY = new float[this.maxParticles];
+        age = new float[this.maxParticles];
+        life = new float[this.maxParticles];
+
+        textureId = Renderable.UNINITIALIZED_ID;
+        animation = AnimatedTexture.NO_ANIMATION;
+        maxAngle = 360;
+        minLife = maxLife = 1;
+        startSize = endSize = 1;
+        source = new Source();
+    }
+
+    /**
+     * @param textureId Renderable.id (o RenderableType.getTextureId()) de la textura, ya preparada
+     * @param animation handle de la animación (Renderer.getAnimationHandle())
+     */
+    public void setSprite(int textureId, int animation){
+        this.textureId = textureId;
+        this.animation = animation;
+    }
+
+    public void setPosition(float x, float y){
+        emitX = x;
+        emitY = y;
+    }
+
+    /**
+     * Particles are born in a random point of this rectangle, centered on the position.
+     */
+    public void setSpread(float width, float height){
+        spreadX = width;
+        spreadY = height;
+    }
+
+    /**
+     * @param particlesPerSecond continuous emission while emitting
+     */
+    public void setRate(float particlesPerSecond){
+        rate = particlesPerSecond;
+    }
+
+    public void setEmitting(boolean emitting){
+        this.emitting = emitting;
+        if(emitting){
+            renderer.wake();
+        } else {
+            emitAccumulator = 0;
+        }
+    }
+
+    public boolean isEmitting(){
+        return emitting;
+    }
+
+    /**
+     * Direction of the initial velocity, in degrees (0 is right, counter clockwise).
+     */
+    public void setAngle(float min, float max){
+        minAngle = min;
+        maxAngle = max;
+    }
+
+    public void setSpeed(float min, float max){
+        minSpeed = min;
+        maxSpeed = max;
+    }
+
+    /**
+     * @param min seconds, more than 0
+     */
+    public void setLife(float min, float max){
+        minLife = Math.max(min, 0.0001f);
+        maxLife = Math.max(max, minLife);
+    }
+
+    /**
+     * Size in world units when the particle is born and when it dies (the particles are squares).
+     */
+    public void setSize(float start, float end){
+        startSize = start;
+        endSize = end;
+    }
+
+    public void setGravity(float x, float y){
+        gravityX = x;
+        gravityY = y;
+    }
+
+    /**
+     * Emits the particles right now, whether it's emitting or not.
+     *
+     * @return particles emitted (less than amount if the emitter got full)
+     */
+    public int burst(int amount){
+        int emitted = emit(amount);
+        if(emitted > 0){
+            renderer.wake();
+        }
+        return emitted;
+    }
+
+    private int emit(int amount){
+        int emitted = Math.min(amount, maxParticles - count);
+        for(int i = 0; i < emitted; i++){
+            spawn();
+        }
+        return emitted;
+    }
+
+    /**
+     * Kills every particle.
+     */
+    public void clear(){
+        count = 0;
+        emitAccumulator = 0;
+    }
+
+    public int getMaxParticles(){
+        return maxParticles;
+    }
+
+    public int size(){
+        return count;
+    }
+
+    public int getLayer(){
+        return layer;
+    }
+
+    private void spawn(){
+        int i = count++;
+        float px = emitX + (spreadX == 0 ? 0 : MathUtils.random(-spreadX / 2, spreadX / 2));
+        float py = emitY + (spreadY == 0 ? 0 : MathUtils.random(-spreadY / 2, spreadY / 2));
+        float angle = MathUtils.random(minAngle, maxAngle);
+        float speed = MathUtils.random(minSpeed, maxSpeed);
+
+        x[i] = px;
+        y[i] = py;
+        prevX[i] = px; // Nace acá, no hay nada que interpolar
+        prevY[i] = py;
+        velocityX[i] = MathUtils.cosDeg(angle) * speed;
+        velocityY[i] = MathUtils.sinDeg(angle) * speed;
+        age[i] = 0;
+        life[i] = MathUtils.random(minLife, maxLife);
+    }
+
+    /**
+     * Ages and moves every particle, removes the dead ones and emits the new ones.
+     */
+    void step(float delta){
+        float gx = gravityX * delta;
+        float gy = gravityY * delta;
+
+        int i = 0;
+        while(i < count){
+            float particleAge = age[i] + delta;
+            if(particleAge >= life[i]){
+                int last = --count;
+                x[i] = x[last];
+                y[i] = y[last];
+                prevX[i] = prevX[last];
+                prevY[i] = prevY[last];
+                velocityX[i] = velocityX[last];
+                velocityY[i] = velocityY[last];
+                age[i] = age[last];
+                life[i] = life[last];
+                continue; // El que vino del final todavía no se actualizó
+            }
+
+            age[i] = particleAge;
+            velocityX[i] += gx;
+            velocityY[i] += gy;
+            x[i] += velocityX[i] * delta;
+            y[i] += velocityY[i] * delta;
+            i++;
+        }
+
+        if(emitting && rate > 0){
+            emitAccumulator += delta * rate;
+            int amount = (int)emitAccumulator;
+            emitAccumulator -= amount;
+            emit(amount);
+        }
+    }
+
+    void snapshotPositions(){
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+    }
+
+    void prepare(TextureRegistry textures){
+        if(count == 0 || textureId == Renderable.UNINITIALIZED_ID){
+            return; // Sin setSprite() no hay textura que preparar
+        }
+        if(!textures.isLoaded(textureId) && textures.isReferenced(textureId)){
+            textures.reload(textureId);
+        }
+        textures.touch(textureId);
+    }
+
+    boolean isAnimating(TextureRegistry textures, float time){
+        return count > 0 || (emitting && rate > 0);
+    }
+
+    /**
+     * The particles are centered on their position.
+     */
+    void record(int from, int to, DrawCommandBuffer commands, int start, RecordContext context){
+        AnimatedTexture at = animation == AnimatedTexture.NO_ANIMATION || textureId == Renderable.UNINITIALIZED_ID ? null : context.textures.get(textureId);
+        if(at == null){
+            for(int i = from; i < to; i++){
+                commands.skip(start + i);
+            }
+            return;
+        }
+
+        Animation anim = at.getAnimation(animation);
+        TextureRegion[] frames = anim.getKeyFrames();
+        int lastFrame = frames.length - 1;
+        float alpha = context.alpha;
+        float sizeDelta = endSize - startSize;
+
+        for(int i = from; i < to; i++){
+            int slot = start + i;
+            float progress = age[i] / life[i];
+            float size = startSize + sizeDelta * progress;
+            float drawX = prevX[i] + (x[i] - prevX[i]) * alpha - size / 2;
+            float drawY = prevY[i] + (y[i] - prevY[i]) * alpha - size / 2;
+            if(context.isCulled(drawX, drawY, size, size)){
+                commands.skip(slot);
+                continue;
+            }
+
+            int frame = Math.min((int)(progress * frames.length), lastFrame);
+            commands.set(slot, frames[frame], drawX, drawY, size, size);
+        }
+    }
+
+    /**
+     * What the Renderer sees of the emitter. It lives apart from the emitter so the recording methods don't have to be public.
+     */
+    private class Source implements CommandSource {
+        @Override
+        public int getLayer() {
+            return layer;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public void step(float delta) {
+            ParticleEmitter.this.step(delta);
+        }
+
+        @Override
+        public void snapshotPositions() {
+            ParticleEmitter.this.snapshotPositions();
+        }
+
+        @Override
+        public void prepare(TextureRegistry textures) {
+            ParticleEmitter.this.prepare(textures);
+        }
+
+        @Override
+        public boolean isAnimating(TextureRegistry textures, float time) {
+            return ParticleEmitter.this.isAnimating(textures, time);
+        }
+
+        @Override
+        public void record(int from, int to, DrawCommandBuffer commands, int start, RecordContext context) {
+            ParticleEmitter.this.record(from, to, commands, start, context);
+        }
+    }
+}
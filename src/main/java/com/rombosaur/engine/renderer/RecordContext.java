@@ -0,0 +1,19 @@
+package com.rombosaur.engine.renderer;
+
+/**
+ * Per-frame values that CommandSource.record() needs. Filled by the Renderer before recording, read only after that.
+ */
+class RecordContext {
+    TextureRegistry textures;
+    float alpha;            // Interpolación entre el paso anterior y el actual
+    float time;             // Reloj de las animaciones
+    boolean cull;           // Si es false se ignora la vista
+    float viewX, viewY, viewWidth, viewHeight;
+
+    /**
+     * @return true if the rectangle is outside the view (and culling is enabled)
+     */
+    boolean isCulled(float x, float y, float width, float height){
+        return cull && (x + width < viewX || x > viewX + viewWidth || y + height < viewY || y > viewY + viewHeight);
+    }
+}
@@ -7,7 +7,6 @@ import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.Pool;
-import com.rombosaur.engine.screens.Game;
 
 /**
  * Model, tiene toda la data necesaria para que se renderize un objeto.
@@ -49,6 +48,17 @@ public abstract class Renderable implements Pool.Poolable {
      */
     protected String curAnimationId;
 
+    /**
+     * Handle of the animation that the renderer will play when "changeAnimation" is true.
+     * AnimatedTexture.NO_ANIMATION means that "curAnimationId" must be resolved by name.
+     */
+    protected int requestedAnimation = AnimatedTexture.NO_ANIMATION;
+
+    /**
+     * Handle of the playing animation.
+     */
+    protected int curAnimationHandle = AnimatedTexture.NO_ANIMATION;
+
     /**
      * Set this flag to true when you set an animation "curAnimationId", so the renderer knows that a call to the change animation method is needed.
      */
@@ -82,13 +92,27 @@ public abstract class Renderable implements Pool.Poolable {
     public float height;
 
     /**
-     * A Rectangle for collision checking.
+     * A Rectangle for collision checking, in world coordinates (it doesn't change when the camera moves).
      * Use the setBounds() method to instantiate the Rectangle,
      * you can create the object manually but be aware that the x and y are modified
      * with the offsetX and offsetY by the "syncBounds()" method.
+     * If you need it in screen coordinates use getScreenBounds().
      */
     public Rectangle bounds;
 
+    /**
+     * Handle of this renderable inside the CollisionSystem, UNINITIALIZED_ID if it's not registered.
+     * It's managed by the CollisionSystem, don't touch it!
+     */
+    public int collisionHandle = UNINITIALIZED_ID;
+
+    /**
+     * Position of this renderable in the actives of its RenderableFactory, and its neighbours in spawn order.
+     * Managed by the RenderableFactory, don't touch them!
+     */
+    public int poolIndex = UNINITIALIZED_ID;
+    public Renderable poolOlder, poolNewer;
+
     /**
      * Offset in X axis of the bounds object
      */
@@ -102,9 +126,48 @@ public abstract class Renderable implements Pool.Poolable {
 
     /**
      * Flag that the renderer uses to show (or not) this renderable.
+     * While it's hidden its animation doesn't advance, it continues from the same frame when it's shown again.
      */
     public boolean visible;
 
+    /**
+     * Render layer. Lower layers are drawn first (backgrounds), higher layers end up on top.
+     */
+    public int layer = 0;
+
+    /**
+     * Draw order inside the layer, lower values are drawn first.
+     * For y-sorting (top-down games) set it to -y every time the renderable moves.
+     * Renderables with the same layer and zOrder are grouped by texture, so the batch doesn't flush between them.
+     */
+    public float zOrder = 0;
+
+    /**
+     * What to do with the animation while the renderable is culled (outside the camera).
+     * false: when it comes back it jumps to where it would be if it was never culled (default).
+     * true: it continues from the frame it had when it went off-screen.
+     */
+    public boolean freezeWhenCulled = false;
+
+    /**
+     * Level geometry that never moves (blocks, background tiles...). Set it before adding the renderable to the scene:
+     * the Renderer compiles the static renderables into a cached mesh per layer, drawn without rebuilding its vertices.
+     * If a static renderable changes, call Renderer.markStaticDirty(). Showing or hiding it (visible) is picked up on its own.
+     */
+    public boolean isStatic = false;
+
+    // Estado interno del Renderer (scene, culling y reloj de la animación)
+    int sceneIndex = UNINITIALIZED_ID;
+    boolean inStatics;
+    boolean cachedVisible;  // visible con el que se armó el caché estático
+    boolean dirty;
+    int gridHandle = UNINITIALIZED_ID;
+    boolean inDrawQueue;
+    int culledFrame;
+    int drawnFrame = -1;
+    float animClock;
+    boolean ready;      // Pasó el primer paso del draw() (textura y animación resueltas)
+
 
     /**
      * Counter for determining which animation frame to show.
@@ -112,6 +175,11 @@ public abstract class Renderable implements Pool.Poolable {
      */
     public float animElapsedTime;
 
+    /**
+     * Shared definition of this renderable, null if it defines everything by itself. See setType().
+     */
+    RenderableType type;
+
     /**
      * Path to the image asset to be used in this renderable.
      */
@@ -129,19 +197,14 @@ public abstract class Renderable implements Pool.Poolable {
 
 
     /**
-     * A Vector3 for generating unprojected coordinates for the bounding box
-     */
-    private Vector3 v3;
-
-    /**
-     * The game's Camera for generating unprojected coordinates for the bounding box
+     * A Vector3 for generating projected coordinates for the bounding box.
+     * It's shared, getScreenBounds() must be called from the render thread.
      */
-    private Camera camera;
+    private static final Vector3 v3 = new Vector3();
 
 
     public Renderable(){
         visible = true; // Defaults to visible, because why not?
-        camera = Game.game.getCamera();
     }
 
 
@@ -155,21 +218,41 @@ public abstract class Renderable implements Pool.Poolable {
      * @param renderer El renderer guarda la lista de Renderables asociada a sus objetos Animation
      */
     public void setAnimation(String name, Renderer renderer){
-        curAnimation = renderer.getAnimation(this, name);
-        looping = renderer.getAnimations(this).get(name).loop;
+        curAnimationId = name;
+        requestedAnimation = renderer.getAnimationHandle(this, name);
+        if(requestedAnimation != AnimatedTexture.NO_ANIMATION) {
+            renderer.applyAnimation(this);
+        }
     }
 
     /**
      * Setea el nombre identificador de animación para que el renderer
      * cambie la animación a la especificada en su próxima pasada.
+     * En el hot path es preferible setAnimation(int), que no tiene que hashear el nombre.
      *
      * @param name id de animación
      */
     public void setAnimation(String name){
         curAnimationId = name;
+        requestedAnimation = AnimatedTexture.NO_ANIMATION;
         changeAnimation = true;
     }
 
+    /**
+     * Same as setAnimation(String) but with the handle of the animation, that's resolved in O(1).
+     * Get the handle once (after prepareTextures()) with Renderer.getAnimationHandle() and keep it.
+     *
+     * @param handle handle de animación de la textura de este renderable
+     */
+    public void setAnimation(int handle){
+        requestedAnimation = handle;
+        changeAnimation = true;
+    }
+
+    public int getAnimationHandle(){
+        return curAnimationHandle;
+    }
+
     /**
      * Se debe llamar al setId luego de haber asignado el campo "texturePath" ya que se usa
      * para calcular el ID. Después de _todo, el id de cada Renderable es su textura...
@@ -181,17 +264,76 @@ public abstract class Renderable implements Pool.Poolable {
             throw new RuntimeException("Error de programación. Se intentó setear un id de renderable sin tener antes el texturePath definido.");
         }
 
-        this.id = RenderablesIdGen.getInstance().getId(texturePath);
+        this.id = TextureRegistry.getInstance().getId(texturePath);
         Gdx.app.log("DEBUG", "Getting id con texturePath: "+texturePath+" resultado: "+id);
     }
 
     /**
-     * Syncs the bounding box Rectangle with the sprite
+     * Takes the texture, frame grid, size and bounds of the type. Replaces texturePath + setId() + buildAnimations():
+     * the animations are the ones of the type, and the texture work is done once per type.
+     * Call it from init() (or after creating the renderable), before prepareTextures().
+     */
+    public void setType(RenderableType type){
+        this.type = type;
+        this.id = type.getTextureId();
+        this.texturePath = type.texturePath;
+        this.framesCols = type.framesCols;
+        this.framesRows = type.framesRows;
+        this.width = type.width;
+        this.height = type.height;
+        this.offsetX = type.offsetX;
+        this.offsetY = type.offsetY;
+
+        if(type.boundsWidth > 0 && type.boundsHeight > 0) {
+            if(bounds == null) {
+                setBounds(type.boundsWidth, type.boundsHeight);
+            } else {
+                bounds.width = type.boundsWidth;
+                bounds.height = type.boundsHeight;
+            }
+        }
+    }
+
+    /**
+     * Same as setType(RenderableType) with the id given by RenderableTypeRegistry.
+     */
+    public void setType(int typeId){
+        setType(RenderableTypeRegistry.getInstance().get(typeId));
+    }
+
+    public RenderableType getType(){
+        return type;
+    }
+
+    /**
+     * Syncs the bounding box Rectangle with the sprite (world coordinates).
+     * The Renderer does this for every renderable in the scene on each frame.
      */
     public void syncBounds(){
-        v3 = camera.project(new Vector3(x+offsetX, y+offsetY, 0));
-        bounds.x = v3.x;
-        bounds.y = v3.y;
+        if(bounds != null) {
+            bounds.x = x + offsetX;
+            bounds.y = y + offsetY;
+        }
+    }
+
+    /**
+     * Projects the bounds to screen coordinates. Only for when you really need them (UI, touch input...)
+     *
+     * @param camera camera used to project
+     * @param out Rectangle where the result is written
+     * @return out, for chaining reasons
+     */
+    public Rectangle getScreenBounds(Camera camera, Rectangle out){
+        camera.project(v3.set(x + offsetX, y + offsetY, 0));
+        out.x = v3.x;
+        out.y = v3.y;
+
+        // El ancho y el alto también cambian si la cámara tiene zoom
+        camera.project(v3.set(x + offsetX + bounds.width, y + offsetY + bounds.height, 0));
+        out.width = v3.x - out.x;
+        out.height = v3.y - out.y;
+
+        return out;
     }
 
     /**
@@ -218,8 +360,11 @@ public abstract class Renderable implements Pool.Poolable {
     /**
      * This method is called by the Renderer.
      * Here you setup all your animations and you can call setAnimation().
+     * Renderables with a RenderableType don't need it, the Renderer uses the animations of the type.
      * @param animationsMap The animations map for this renderable.id (can already exist if you use the same asset for another object)
      * @return you should return animationsMap param for chaining reasons
      */
-    public abstract ObjectMap<String, AnimationData> buildAnimations(ObjectMap<String, AnimationData> animationsMap);
+    public ObjectMap<String, AnimationData> buildAnimations(ObjectMap<String, AnimationData> animationsMap){
+        return animationsMap;
+    }
 }
@@ -0,0 +1,434 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+
+/**
+ * Structure of arrays version of a bunch of Renderables: every field is a primitive array and the
+ * Renderer draws the whole store walking those arrays, without touching objects.
+ * Useful for lots of simple sprites (bullets, crowds, coins...) where a Renderable per sprite is too heavy.
+ * It lives next to the regular Renderables, the scene doesn't change.
+ *
+ * Each sprite is identified by a handle that doesn't change while it's alive. Internally the sprites are
+ * packed (removing swaps the last one into the hole), so to process them all in bulk iterate the
+ * dense index from 0 to size() over the get*Array() arrays.
+ *
+ * The whole store is drawn in its layer (after the Renderables of that same layer).
+ * Textures must be prepared with Renderer.prepareTextures() (use the id of any renderable with that texture).
+ * The animation time is the scene clock minus the time when the animation was set, so it never needs
+ * to be advanced, and it doesn't freeze while culled. With tick() the drawing clock lags up to one step behind
+ * the scene clock, so a just set animation stays on its first frame until the drawing reaches it.
+ *
+ * Created with Renderer.createStore().
+ */
+public class RenderableStore {
+    public static final byte VISIBLE = 1;
+    public static final byte FLIP_HORIZONTALLY = 2;
+    public static final byte FLIP_VERTICALLY = 4;
+
+    private final Renderer renderer;
+    private final int layer;
+
+    // Denso, indexado por índice
+    private int size;
+    private int[] textureIds;
+    private float[] x, y, prevX, prevY;
+    private float[] width, height;
+    private int[] animations;       // Handle de animación de AnimatedTexture
+    private float[] animStart;      // Tiempo de la scene cuando se seteó la animación
+    private byte[] flags;
+    private int[] handles;          // Índice -> handle
+
+    // Handle -> índice, -1 si está libre
+    private int[] indices;
+    private final IntArray freeHandles;
+    private int nextHandle;
+
+    private final IntIntMap textureUse;   // Cuántos sprites usan cada textura
+
+    final CommandSource source;           // Lo que agrega el Renderer a sus sources
+
+    RenderableStore(Renderer renderer, int layer, int capacity) {
+        this.renderer = renderer;
+        this.layer = layer;
+        capacity = Math.max(capacity, 1);
+        freeHandles = new IntArray();
+        textureUse = new IntIntMap();
+        indices = new int[0];
+        resize(capacity);
+        source = new Source();
+    }
+
+    /**
+     * Adds a sprite, visible and without animation.
+     *
+     * @param textureId Renderable.id of the texture (it must be prepared)
+     * @return the handle of the sprite
+     */
+    public int add(int textureId, float x, float y, float width, float height){
+        if(size == textureIds.length){
+            resize(size * 2);
+        }
+
+        int handle;
+        if(freeHandles.size > 0){
+            handle = freeHandles.pop();
+        } else {
+            handle = nextHandle++;
+            if(handle == indices.length){
+                int[] newIndices = new int[Math.max(indices.length * 2, 16)];
+                System.arraycopy(indices, 0, newIndices, 0, indices.length);
+                indices = newIndices;
+            }
+        }
+
+        int index = size++;
+        indices[handle] = index;
+        handles[index] = handle;
+        textureIds[index] = textureId;
+        this.x[index] = x;
+        this.y[index] = y;
+        prevX[index] = x;
+        prevY[index] = y;
+        this.width[index] = width;
+        this.height[index] = height;
+        animations[index] = AnimatedTexture.NO_ANIMATION;
+        animStart[index] = renderer.getSceneTime();
+        flags[index] = VISIBLE;
+        textureUse.getAndIncrement(textureId, 0, 1);
+        renderer.wake();
+
+        return handle;
+    }
+
+    /**
+     * Adds a sprite with the texture and size of the renderable.
+     */
+    public int add(Renderable prototype, float x, float y){
+        return add(prototype.id, x, y, prototype.width, prototype.height);
+    }
+
+    /**
+     * Adds a sprite with the texture and default size of the type.
+     */
+    public int add(RenderableType type, float x, float y){
+        return add(type.getTextureId(), x, y, type.width, type.height);
+    }
+
+    /**
+     * Removes the sprite in O(1), the last one takes its place (its handle doesn't change).
+     */
+    public void remove(int handle){
+        int index = indexOf(handle);
+        int last = --size;
+
+        if(textureUse.getAndIncrement(textureIds[index], 0, -1) == 1){
+            textureUse.remove(textureIds[index], 0);
+        }
+
+        if(index != last){
+            textureIds[index] = textureIds[last];
+            x[index] = x[last];
+            y[index] = y[last];
+            prevX[index] = prevX[last];
+            prevY[index] = prevY[last];
+            width[index] = width[last];
+            height[index] = height[last];
+            animations[index] = animations[last];
+            animStart[index] = animStart[last];
+            flags[index] = flags[last];
+            handles[index] = handles[last];
+            indices[handles[index]] = index;
+        }
+
+        indices[handle] = -1;
+        freeHandles.add(handle);
+        renderer.wake();
+    }
+
+    public boolean contains(int handle){
+        return handle >= 0 && handle < nextHandle && indices[handle] != -1;
+    }
+
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            indices[handles[i]] = -1;
+            freeHandles.add(handles[i]);
+        }
+        size = 0;
+        textureUse.clear();
+        renderer.wake();
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int getLayer(){
+        return layer;
+    }
+
+    /**
+     * @return dense index of the sprite, valid until the next remove()
+     */
+    public int indexOf(int handle){
+        int index = handle >= 0 && handle < nextHandle ? indices[handle] : -1;
+        if(index == -1){
+            throw new RuntimeException("RenderableStore - Handle inexistente: "+handle);
+        }
+        return index;
+    }
+
+    public void setPosition(int handle, float x, float y){
+        int index = indexOf(handle);
+        this.x[index] = x;
+        this.y[index] = y;
+        renderer.wake();
+    }
+
+    public float getX(int handle){
+        return x[indexOf(handle)];
+    }
+
+    public float getY(int handle){
+        return y[indexOf(handle)];
+    }
+
+    public void setSize(int handle, float width, float height){
+        int index = indexOf(handle);
+        this.width[index] = width;
+        this.height[index] = height;
+        renderer.wake();
+    }
+
+    public void setVisible(int handle, boolean visible){
+        setFlag(indexOf(handle), VISIBLE, visible);
+        renderer.wake();
+    }
+
+    public void setFlip(int handle, boolean horizontally, boolean vertically){
+        int index = indexOf(handle);
+        setFlag(index, FLIP_HORIZONTALLY, horizontally);
+        setFlag(index, FLIP_VERTICALLY, vertically);
+        renderer.wake();
+    }
+
+    /**
+     * Plays the animation from its first frame.
+     *
+     * @param animation handle de la animación (Renderer.getAnimationHandle())
+     */
+    public void setAnimation(int handle, int animation){
+        int index = indexOf(handle);
+        animations[index] = animation;
+        animStart[index] = renderer.getSceneTime();
+        renderer.wake();
+    }
+
+    public int getAnimation(int handle){
+        return animations[indexOf(handle)];
+    }
+
+    /**
+     * Call it after writing straight into the get*Array() arrays, so an idle Renderer draws again
+     * (the setters already do it).
+     */
+    public void markChanged(){
+        renderer.wake();
+    }
+
+    // Acceso en bloque, indexado de 0 a size(). Los arrays se reemplazan cuando el store crece.
+
+    public float[] getXArray(){
+        return x;
+    }
+
+    public float[] getYArray(){
+        return y;
+    }
+
+    public float[] getWidthArray(){
+        return width;
+    }
+
+    public float[] getHeightArray(){
+        return height;
+    }
+
+    public byte[] getFlagsArray(){
+        return flags;
+    }
+
+    /**
+     * @return the handle of the sprite in each dense index
+     */
+    public int[] getHandlesArray(){
+        return handles;
+    }
+
+    /**
+     * prevX/prevY = x/y for every sprite.
+     */
+    void snapshotPositions(){
+        System.arraycopy(x, 0, prevX, 0, size);
+        System.arraycopy(y, 0, prevY, 0, size);
+    }
+
+    /**
+     * Reloads the evicted textures and marks them as used in this frame. Render thread only.
+     */
+    void prepare(TextureRegistry textures){
+        IntIntMap.Keys ids = textureUse.keys();
+        while(ids.hasNext){
+            int id = ids.next();
+            if(!textures.isLoaded(id) && textures.isReferenced(id)){
+                textures.reload(id);
+            }
+            textures.touch(id);
+        }
+    }
+
+    /**
+     * Looks for a visible sprite whose animation still changes frames. Stops at the first one.
+     */
+    boolean isAnimating(TextureRegistry textures, float time){
+        for(int i = 0; i < size; i++){
+            int animation = animations[i];
+            if((flags[i] & VISIBLE) == 0 || animation == AnimatedTexture.NO_ANIMATION){
+                continue;
+            }
+            AnimatedTexture at = textures.get(textureIds[i]);
+            if(at != null && Renderer.isAnimating(at.getAnimation(animation), at.isLooping(animation), Math.max(time - animStart[i], 0))){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the sprites [from, to) in the command buffer starting at the slot "start". Culled, invisible and
+     * sprites without animation (or texture) leave their slot empty. Only writes its own slots, so it can run
+     * in parallel for disjoint ranges.
+     */
+    void record(int from, int to, DrawCommandBuffer commands, int start, RecordContext context){
+        float alpha = context.alpha;
+        for(int i = from; i < to; i++){
+            int slot = start + i;
+            byte flag = flags[i];
+            int animation = animations[i];
+            if((flag & VISIBLE) == 0 || animation == AnimatedTexture.NO_ANIMATION){
+                commands.skip(slot);
+                continue;
+            }
+
+            float drawX = prevX[i] + (x[i] - prevX[i]) * alpha;
+            float drawY = prevY[i] + (y[i] - prevY[i]) * alpha;
+            float drawWidth = width[i];
+            float drawHeight = height[i];
+            if(context.isCulled(drawX, drawY, drawWidth, drawHeight)){
+                commands.skip(slot);
+                continue;
+            }
+
+            AnimatedTexture at = context.textures.get(textureIds[i]);
+            if(at == null){
+                commands.skip(slot);
+                continue;
+            }
+
+            if((flag & FLIP_VERTICALLY) != 0){
+                drawY += drawHeight;
+                drawHeight *= -1;
+            }
+            if((flag & FLIP_HORIZONTALLY) != 0){
+                drawX += drawWidth;
+                drawWidth *= -1;
+            }
+
+            Animation anim = at.getAnimation(animation);
+            commands.set(slot, AnimatedTexture.getKeyFrame(anim, Math.max(context.time - animStart[i], 0), at.isLooping(animation)), drawX, drawY, drawWidth, drawHeight);
+        }
+    }
+
+    private void setFlag(int index, byte flag, boolean value){
+        if(value){
+            flags[index] |= flag;
+        } else {
+            flags[index] &= ~flag;
+        }
+    }
+
+    private void resize(int capacity){
+        textureIds = copy(textureIds, new int[capacity]);
+        x = copy(x, new float[capacity]);
+        y = copy(y, new float[capacity]);
+        prevX = copy(prevX, new float[capacity]);
+        prevY = copy(prevY, new float[capacity]);
+        width = copy(width, new float[capacity]);
+        height = copy(height, new float[capacity]);
+        animations = copy(animations, new int[capacity]);
+        animStart = copy(animStart, new float[capacity]);
+        handles = copy(handles, new int[capacity]);
+
+        byte[] newFlags = new byte[capacity];
+        if(flags != null){
+            System.arraycopy(flags, 0, newFlags, 0, size);
+        }
+        flags = newFlags;
+    }
+
+    private int[] copy(int[] array, int[] result){
+        if(array != null){
+            System.arraycopy(array, 0, result, 0, size);
+        }
+        return result;
+    }
+
+    private float[] copy(float[] array, float[] result){
+        if(array != null){
+            System.arraycopy(array, 0, result, 0, size);
+        }
+        return result;
+    }
+
+    /**
+     * CommandSource side of the store, private so prepare()/record() stay out of the public API.
+     */
+    private class Source implements CommandSource {
+        @Override
+        public int getLayer() {
+            return layer;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void step(float delta) {
+            // Los sprites los mueve el juego, no hay nada que simular
+        }
+
+        @Override
+        public void snapshotPositions() {
+            RenderableStore.this.snapshotPositions();
+        }
+
+        @Override
+        public void prepare(TextureRegistry textures) {
+            RenderableStore.this.prepare(textures);
+        }
+
+        @Override
+        public boolean isAnimating(TextureRegistry textures, float time) {
+            return RenderableStore.this.isAnimating(textures, time);
+        }
+
+        @Override
+        public void record(int from, int to, DrawCommandBuffer commands, int start, RecordContext context) {
+            RenderableStore.this.record(from, to, commands, start, context);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Shared definition of a kind of renderable (flyweight): spritesheet, frame grid, animations and default
+ * size/bounds, defined once no matter how many instances there are.
+ * Instances reference it with Renderable.setType() and only keep their own state (position, animation time...).
+ *
+ * Renderer.prepareTextures() does the work once per type instead of once per renderable, and the animations
+ * come from here, so typed renderables don't need to implement buildAnimations().
+ *
+ * Register it with RenderableTypeRegistry to reference it by id.
+ */
+public class RenderableType {
+    public final String texturePath;
+    public final int framesCols;
+    public final int framesRows;
+
+    /**
+     * Default size of the instances.
+     */
+    public float width, height;
+
+    /**
+     * Default bounds of the instances, no bounds if they're 0.
+     */
+    public float boundsWidth, boundsHeight;
+    public float offsetX, offsetY;
+
+    private final ObjectMap<String, AnimationData> animations;
+    private final int textureId;
+    private final Renderable prototype;     // Representa al type en el pipeline de texturas
+    int id = Renderable.UNINITIALIZED_ID;
+
+    public RenderableType(String texturePath, int framesCols, int framesRows) {
+        if(texturePath == null || texturePath.equals("")){
+            throw new RuntimeException("Error de programación. Se intentó crear un RenderableType sin texturePath.");
+        }
+
+        this.texturePath = texturePath;
+        this.framesCols = framesCols;
+        this.framesRows = framesRows;
+        animations = new ObjectMap<String, AnimationData>();
+        textureId = TextureRegistry.getInstance().getId(texturePath);
+        prototype = new Prototype(this);
+    }
+
+    public RenderableType addAnimation(String name, AnimationData animation){
+        animations.put(name, animation);
+        return this;
+    }
+
+    public RenderableType addAnimation(String name, short[] frames, byte fps, boolean loop){
+        return addAnimation(name, new AnimationData(frames, fps, loop));
+    }
+
+    public RenderableType setSize(float width, float height){
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public RenderableType setBounds(float width, float height, float offsetX, float offsetY){
+        this.boundsWidth = width;
+        this.boundsHeight = height;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        return this;
+    }
+
+    public ObjectMap<String, AnimationData> getAnimations(){
+        return animations;
+    }
+
+    /**
+     * @return the id given by RenderableTypeRegistry, UNINITIALIZED_ID if it's not registered
+     */
+    public int getId(){
+        return id;
+    }
+
+    /**
+     * @return the Renderable.id of the texture
+     */
+    public int getTextureId(){
+        return textureId;
+    }
+
+    Renderable getPrototype(){
+        return prototype;
+    }
+
+    /**
+     * Renderable that stands for the type when preparing/releasing textures. It's never drawn.
+     */
+    private static class Prototype extends Renderable {
+        private final RenderableType type;
+
+        Prototype(RenderableType type) {
+            this.type = type;
+            this.id = type.textureId;
+            this.texturePath = type.texturePath;
+            this.framesCols = type.framesCols;
+            this.framesRows = type.framesRows;
+        }
+
+        @Override
+        public void init(float x, float y) {}
+
+        @Override
+        public void reset() {}
+
+        @Override
+        public ObjectMap<String, AnimationData> buildAnimations(ObjectMap<String, AnimationData> animationsMap) {
+            animationsMap.putAll(type.animations);
+            return animationsMap;
+        }
+    }
+}
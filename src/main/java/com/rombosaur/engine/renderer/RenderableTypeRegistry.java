@@ -0,0 +1,47 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Registro de los RenderableType del juego, les da un id denso (0, 1, 2...) para referenciarlos
+ * desde los renderables (Renderable.setType(int)), stores o datos de nivel.
+ */
+public class RenderableTypeRegistry {
+    private static class Holder {
+        static final RenderableTypeRegistry INSTANCE = new RenderableTypeRegistry();
+    }
+
+    private final Array<RenderableType> types;
+
+    private RenderableTypeRegistry(){
+        types = new Array<RenderableType>(true, 16, RenderableType.class);
+    }
+
+    public static RenderableTypeRegistry getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Registering the same type again returns the id it already has.
+     *
+     * @return the id of the type
+     */
+    public synchronized int register(RenderableType type){
+        if(type.id == Renderable.UNINITIALIZED_ID){
+            type.id = types.size;
+            types.add(type);
+        }
+        return type.id;
+    }
+
+    public synchronized RenderableType get(int id){
+        if(id < 0 || id >= types.size){
+            throw new RuntimeException("RenderableTypeRegistry - No existe el type con id "+id);
+        }
+        return types.get(id);
+    }
+
+    public synchronized int size(){
+        return types.size;
+    }
+}
@@ -1,36 +1,238 @@
 package com.rombosaur.engine.renderer;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.glutils.FileTextureData;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntSet;
 import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.rombosaur.engine.metrics.FrameMetrics;
+import com.rombosaur.engine.metrics.FrameMetrics.Metric;
+import com.rombosaur.engine.spatial.SpatialGrid;
+import com.rombosaur.engine.tiles.TileLayer;
 
 /**
  * Proceso que renderiza modelos "Renderable".
  * Para usar se debe:
  * 1) Instanciar
  * 2) Llamar al prepareTextures() con TODAS las texturas que se van a usar.
- * 3) Modificar los Renderable's que se van a renderizar dinámicamente con los métodos addToScene()/clearScene()...
+ * 3) Modificar los Renderable's que se van a renderizar dinámicamente con los métodos addToScene()/removeFromScene()/clearScene()...
+ *    Agregar y sacar es O(1), no hace falta vaciar y volver a llenar la scene en cada frame.
  * 4) Llamar al método render() en cada frame
  *
+ * Con paso fijo (fixed timestep) en vez del render() se llama a tick() por cada paso de la simulación y a render(alpha)
+ * en cada frame, que dibuja interpolando entre prevX/prevY y x/y. Así la lógica puede correr a 30Hz y el dibujo a lo que dé la pantalla.
+ *
+ * Si muchos renderables comparten textura y animaciones conviene definirlas una vez en un RenderableType
+ * (Renderable.setType()), así el prepareTextures() trabaja una vez por type y no por instancia.
+ *
  * Los renderables tienen que tener una animación seteada. Eso se debe hacer posterior a la llamada del método prepareTextures(),
  * de lo contrario se van a logguear errores. Cualquier otra missconfiguration tiene que saltar por el log.
  *
+ * Con setUpdateThreads() el trabajo por renderable de cada frame (reloj de la animación, key frame, rectángulo, bounds)
+ * se reparte entre varios threads. Lo que llega al batch es lo mismo y en el mismo orden.
+ *
+ * Para muchos sprites simples (balas, monedas...) está createStore(), que los guarda en arrays primitivos
+ * (RenderableStore) en vez de un objeto por sprite, y para efectos createEmitter() (ParticleEmitter).
+ * Se dibujan en su layer junto con los Renderables.
+ *
+ * Los renderables con isStatic (geometría del nivel) no pasan por el batch en cada frame: se compilan en un
+ * SpriteCache por layer que solo se reconstruye cuando cambia el conjunto de estáticos.
+ *
+ * Los mundos grandes van en TileLayer's (addTileLayer()), que cargan y descargan chunks alrededor de la cámara.
+ *
+ * Se dibuja en orden de Renderable.layer, después Renderable.zOrder y por último agrupando por textura (id).
+ * El orden se mantiene de un frame al otro, así que ordenar solo cuesta algo cuando algo cambió.
+ *
+ * Con setCulling() los renderables que quedan fuera de la cámara no llegan al batch. Para no recorrer toda la scene
+ * se indexan en una SpatialGrid, y solo se ordena/dibuja lo que devuelve la consulta de la vista de la cámara.
+ *
+ * Opcionalmente (setAtlasPacking()) el prepareTextures() empaqueta todos los spritesheets del nivel en unas
+ * pocas páginas de atlas, así el SpriteBatch no tiene que hacer flush cada vez que cambia de textura.
+ *
  * Created by rombus on 21/02/17.
  */
 public class Renderer implements Disposable {
     private Batch batch;
-    private ObjectMap<Integer, AnimatedTexture> textures; // Array de AnimatedTextures, no hay repetidos. Están todas las texturas del nivel acá.
-    private ObjectMap<Integer, ObjectMap<String, AnimationData>> animations; // Array de animaciones, no hay repetidos. Están todas las animaciones por cada renderable.id
+    private final TextureRegistry textures; // AnimatedTextures y animaciones indexadas por renderable.id, no hay repetidos.
+    private final IntIntMap retained;       // Referencias que tomó este Renderer en el registry, por id
     private Array<Renderable> renderablesInScene;        // Lo que esté acá se va a renderizar, por lo que alguien tiene que administrar esta lista.
 
+    private boolean atlasPacking;
+    private int atlasPageSize;
+    private static final int ATLAS_PADDING = 2;
+
+    // Culling
+    private OrthographicCamera camera;
+    private boolean culling;
+    private SpatialGrid sceneGrid;
+    private Array<Renderable> gridOwners;   // Renderable de cada handle de la grilla
+    private IntArray visibleHandles;
+    private Array<Renderable> drawQueue;    // Lo que pasó el culling, ordenado. Se mantiene entre frames.
+
+    // Dirty tracking
+    private boolean dirtyTracking;
+    private final Array<Renderable> dirty;  // Marcados con markDirty() desde el último frame
+    private boolean orderDirty;             // Hay que volver a ordenar
+
+    private TextureLoader loader;           // Se crea con el primer prepareTexturesAsync()
+    private long uploadBudgetNanos;
+
+    private final FrameMetrics metrics;
+
+    private int frameId;
+    private float sceneTime;                // Reloj de las animaciones
+    private float tickDelta;                // Duración del último tick()
+
+    // Update paralelo de los renderables, el submit al batch es siempre en este thread
+    private ParallelPass parallel;
+    private final FramePass framePass;
+    private final ScenePass scenePass;
+    private final TickPass tickPass;
+    private final DrawCommandBuffer commands;   // Lo que se dibujó en el último frame, se puede volver a dibujar con replay()
+    private final IntArray submitRanges;        // Pares [from, to) de commands, en el orden en que van al batch
+    private final Array<CommandSource> sources; // Stores y emitters, ordenados por layer
+    private final SourcePass sourcePass;
+    private final RecordContext recordContext;
+    private final StaticSpriteCache staticSprites;
+    private final Array<TileLayer> tileLayers;      // Ordenadas por layer
+    private static final int STATIC_RANGE = 0;      // Marcas de los rangos negativos de submitRanges
+    private static final int TILES_RANGE = 1;
+    private int lastDrawCalls;
+
+    // Detección de frames iguales (setIdleDetection())
+    private boolean idleDetection;
+    private boolean idle;                   // El último draw() dibujó lo mismo que el anterior y nada se anima solo
+    private boolean animating;              // Alguno de los renderables de este frame sigue cambiando de frame
+    private DrawCommandBuffer previousCommands;
+    private IntArray previousRanges;
+    private final float[] lastView = new float[16];
+
     public Renderer(Batch batch) {
         this.batch = batch;
-        textures = new ObjectMap<Integer, AnimatedTexture>();
-        animations = new ObjectMap<Integer, ObjectMap<String, AnimationData>>();
-        renderablesInScene = new Array<Renderable>();
+        textures = TextureRegistry.getInstance();
+        retained = new IntIntMap();
+        renderablesInScene = new Array<Renderable>(true, 16, Renderable.class);
+        atlasPageSize = 1024;
+        metrics = new FrameMetrics();
+        uploadBudgetNanos = 4000000; // 4ms, a 60fps deja tiempo para dibujar una pantalla de carga
+        gridOwners = new Array<Renderable>();
+        visibleHandles = new IntArray();
+        drawQueue = new Array<Renderable>(true, 16, Renderable.class);
+        dirty = new Array<Renderable>(true, 16, Renderable.class);
+        orderDirty = true;
+        parallel = new ParallelPass(1);
+        framePass = new FramePass();
+        scenePass = new ScenePass();
+        tickPass = new TickPass();
+        commands = new DrawCommandBuffer();
+        submitRanges = new IntArray();
+        sources = new Array<CommandSource>();
+        sourcePass = new SourcePass();
+        recordContext = new RecordContext();
+        recordContext.textures = textures;
+        staticSprites = new StaticSpriteCache();
+        tileLayers = new Array<TileLayer>();
+    }
+
+    /**
+     * Amount of threads used to update the renderables (animation clocks, key frames, draw rectangles,
+     * bounds and prevX/prevY) before they're sent to the batch. The batch is always fed from the render thread
+     * in the sorted order, so the frame is the same with any amount of threads.
+     * Only big scenes (thousands of renderables) are split, smaller ones run on the render thread anyway.
+     *
+     * @param threads 1 (default) to do everything on the render thread. Runtime.getRuntime().availableProcessors() is a good value.
+     */
+    public void setUpdateThreads(int threads){
+        parallel.dispose();
+        parallel = new ParallelPass(threads);
+    }
+
+    /**
+     * Compares each frame with the previous one (draw commands, camera, static caches) and looks for things that
+     * change by themselves (animations that still change frames, particles, textures loading, tile chunks streaming).
+     * See isIdle(). It costs a copy of the draw commands per frame, so it's off by default.
+     * While idle, the scene, store and emitter methods that change something ask for a frame (requestRendering()).
+     * Plain field writes on a Renderable don't, follow them with markDirty().
+     */
+    public void setIdleDetection(boolean enabled){
+        idleDetection = enabled;
+        idle = false;
+        if(enabled && previousCommands == null){
+            previousCommands = new DrawCommandBuffer();
+            previousRanges = new IntArray();
+        }
+    }
+
+    /**
+     * @return true if the last render() drew exactly the same as the previous one and the next one would be the same
+     *         too unless someone changes the scene. Always false without setIdleDetection().
+     */
+    public boolean isIdle(){
+        return idle;
+    }
+
+    /**
+     * The scene changed while idle: the app may have stopped rendering (non-continuous), ask for a frame.
+     * Stores and emitters call it too when they change.
+     */
+    void wake(){
+        if(idle){
+            idle = false;
+            Gdx.graphics.requestRendering();
+        }
+    }
+
+    /**
+     * The camera used for culling. The Game sets it on create().
+     */
+    public void setCamera(OrthographicCamera camera){
+        this.camera = camera;
+    }
+
+    /**
+     * Enables (or disables) camera culling. Renderables outside the camera view are skipped.
+     *
+     * @param enabled true to cull
+     * @param cellSize size of the cells of the spatial index, in world units. Something around the size
+     *                 of your biggest sprites (or a few tiles) works fine.
+     */
+    public void setCulling(boolean enabled, float cellSize){
+        clearCulling();
+        culling = enabled;
+
+        if(enabled) {
+            sceneGrid = new SpatialGrid(cellSize);
+            for (Renderable renderable : renderablesInScene) {
+                index(renderable);
+            }
+        } else {
+            sceneGrid = null;
+        }
+    }
+
+    /**
+     * Enables (or disables) packing every spritesheet into shared atlas pages on the next prepareTextures() call.
+     * Textures that were already prepared are left as they are.
+     *
+     * @param enabled true to pack the sheets
+     * @param pageSize width and height of each atlas page. Sheets bigger than this are loaded on their own Texture.
+     */
+    public void setAtlasPacking(boolean enabled, int pageSize){
+        this.atlasPacking = enabled;
+        this.atlasPageSize = pageSize;
     }
 
     /**
@@ -40,12 +242,18 @@ public class Renderer implements Disposable {
      * @param renderables todos los renderablesInScene DEL NIVEL actual deben estar en este arreglo.
      *                    No solo los de 1 instant (por eso se recive por parámetro.
      *                    El "renderablesInScene" de esta clase es de 1 solo instant)
+     *                    Each renderable retains its texture, call releaseTextures() with them when the level ends.
      */
     public void prepareTextures(Array<Renderable> renderables){
-        for(Renderable rend: renderables){
-            if(!textures.containsKey(rend.id)){
-                AnimatedTexture at = new AnimatedTexture(rend.texturePath, rend.framesCols, rend.framesRows);
-                textures.put(rend.id, at);
+        renderables = collapseTypes(renderables);
+        if(atlasPacking){
+            packTextures(renderables);
+        } else {
+            for (Renderable rend : renderables) {
+                if (!textures.isLoaded(rend.id)) {
+                    AnimatedTexture at = new AnimatedTexture(rend.texturePath, rend.framesCols, rend.framesRows);
+                    textures.put(rend.id, at, rend.framesCols, rend.framesRows, null);
+                }
             }
         }
 
@@ -55,27 +263,193 @@ public class Renderer implements Disposable {
         prepareTextures(new Array<Renderable>(renderables));
     }
 
+    /**
+     * Same as prepareTextures() but straight with the types, no instance is needed.
+     * Release them with releaseTypes().
+     */
+    public void prepareTypes(Array<RenderableType> types){
+        prepareTextures(prototypesOf(types));
+    }
+
+    public void releaseTypes(Array<RenderableType> types){
+        releaseTextures(prototypesOf(types));
+    }
+
+    private Array<Renderable> prototypesOf(Array<RenderableType> types){
+        Array<Renderable> prototypes = new Array<Renderable>(types.size);
+        for(RenderableType type : types){
+            prototypes.add(type.getPrototype());
+        }
+        return prototypes;
+    }
+
+    /**
+     * Replaces every renderable that has a RenderableType with the prototype of the type, once per type.
+     * That way the texture work (and buildAnimations) is O(types) instead of O(renderables).
+     * Renderables without id (setId() never called) are left out, with an error in the log.
+     */
+    private Array<Renderable> collapseTypes(Array<Renderable> renderables){
+        Array<Renderable> result = new Array<Renderable>(renderables.size);
+        ObjectSet<RenderableType> seen = new ObjectSet<RenderableType>();
+        for(Renderable rend : renderables){
+            if(rend.type == null){
+                if(rend.id == Renderable.UNINITIALIZED_ID){
+                    Gdx.app.log("ERR", "Renderer - El Renderable \""+rend.texturePath+"\" no tiene id, se saltea su textura.\nLlamaste al setId()???");
+                    continue;
+                }
+                result.add(rend);
+            } else if(seen.add(rend.type)){
+                result.add(rend.type.getPrototype());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Releases the textures retained by prepareTextures(). The ones that are no longer referenced
+     * by any renderable are unloaded.
+     *
+     * @param renderables the same renderables passed to prepareTextures()
+     */
+    public void releaseTextures(Array<Renderable> renderables){
+        for(Renderable rend : collapseTypes(renderables)){
+            int count = retained.get(rend.id, 0);
+            if(count > 1){
+                retained.put(rend.id, count - 1);
+            } else {
+                retained.remove(rend.id, 0);
+            }
+            textures.release(rend.id);
+        }
+    }
+
+    /**
+     * Same as the non packed path of prepareTextures(), but the sheets are copied into PixmapPacker pages and
+     * each AnimatedTexture gets its frames as TextureRegion's of those pages.
+     * A level with lots of small sheets ends up in a handful of Texture's (and draw calls).
+     *
+     * @param renderables todos los renderables del nivel
+     */
+    private void packTextures(Array<Renderable> renderables){
+        Array<Renderable> owners = new Array<Renderable>();  // Un renderable por cada textura a empaquetar
+        Array<Pixmap> sheets = new Array<Pixmap>();
+        IntSet seen = new IntSet();
+
+        for(Renderable rend: renderables){
+            if(textures.isLoaded(rend.id) || !seen.add(rend.id)){
+                continue;
+            }
+            owners.add(rend);
+            sheets.add(new Pixmap(Gdx.files.internal(rend.texturePath)));
+        }
+
+        packSheets(owners, sheets);
+    }
+
+    /**
+     * Packs already decoded sheets. The pixmaps are disposed (or given to a Texture) here.
+     *
+     * @param owners un renderable por cada sheet
+     * @param sheets los pixmaps decodificados, en el mismo orden que owners
+     */
+    void packSheets(Array<Renderable> owners, Array<Pixmap> sheets){
+        PixmapPacker packer = new PixmapPacker(atlasPageSize, atlasPageSize, Pixmap.Format.RGBA8888, ATLAS_PADDING, false);
+        Array<Renderable> packed = new Array<Renderable>();
+
+        for(int i = 0; i < owners.size; i++){
+            Renderable rend = owners.get(i);
+            Pixmap sheet = sheets.get(i);
+            if(textures.isLoaded(rend.id)){
+                sheet.dispose();
+                continue;
+            }
+
+            if(sheet.getWidth() > atlasPageSize - ATLAS_PADDING * 2 || sheet.getHeight() > atlasPageSize - ATLAS_PADDING * 2){
+                // No entra en una página, va en su propia textura
+                Gdx.app.log("WARN", "Renderer - La textura \""+rend.texturePath+"\" es más grande que la página del atlas, se carga sola.");
+                uploadTexture(rend, sheet);
+                continue;
+            }
+
+            packer.pack(rend.texturePath, sheet); // El packer copia los pixels, el pixmap sigue siendo nuestro
+            sheet.dispose();
+            packed.add(rend);
+        }
+
+        if(packed.size > 0) {
+            TextureAtlas atlas = packer.generateTextureAtlas(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest, false);
+            for (Renderable rend : packed) {
+                // El registry libera la página cuando se descargan todas sus texturas
+                textures.put(rend.id, new AnimatedTexture(atlas.findRegion(rend.texturePath), rend.framesCols, rend.framesRows), rend.framesCols, rend.framesRows, atlas);
+            }
+        }
+
+        packer.dispose();
+    }
+
+    /**
+     * Creates the Texture of the renderable from an already decoded pixmap and registers it.
+     * The pixmap is consumed by the Texture (and it's still a managed Texture, it's reloaded from the file on context loss).
+     */
+    void uploadTexture(Renderable rend, Pixmap sheet){
+        Texture texture = new Texture(new FileTextureData(Gdx.files.internal(rend.texturePath), sheet, null, false));
+        textures.put(rend.id, new AnimatedTexture(texture, rend.framesCols, rend.framesRows), rend.framesCols, rend.framesRows, null);
+    }
+
+    /**
+     * Loads the textures of the renderables without blocking the render thread.
+     * The images are decoded in background threads and uploaded to the GPU from update(), using at most
+     * the time set with setUploadBudget() on each frame. When everything is uploaded the animations are built
+     * (like prepareTextures() does) and the listener is notified.
+     *
+     * @param renderables todos los renderables del nivel
+     * @param listener progress callbacks (called from the render thread), can be null
+     * @return the task, that can be polled for progress instead of using the listener
+     */
+    public TextureLoader.Task prepareTexturesAsync(Array<Renderable> renderables, TextureLoader.Listener listener){
+        if(loader == null){
+            loader = new TextureLoader(this);
+        }
+        return loader.submit(collapseTypes(renderables), listener, atlasPacking);
+    }
+
+    /**
+     * Maximum time per frame (in milliseconds) used to upload textures loaded with prepareTexturesAsync().
+     */
+    public void setUploadBudget(float millis){
+        uploadBudgetNanos = (long)(millis * 1000000);
+    }
+
+    boolean isTextureLoaded(int id){
+        return textures.isLoaded(id);
+    }
+
     /**
      * Calls the buildAnimation() method for each renderable.
      * This method bust be called after the renderable setId() method.
      * @param renderables
      */
-    private void prepareAnimations(Array<Renderable> renderables) {
+    void prepareAnimations(Array<Renderable> renderables) {
         for (Renderable renderable : renderables) {
+            AnimatedTexture at = textures.get(renderable.id);
+            if(at == null){
+                Gdx.app.log("ERR", "Renderer - No se pudo cargar la textura \""+renderable.texturePath+"\", no se arman sus animaciones.");
+                continue;
+            }
+
             ObjectMap<String, AnimationData> anims = renderable.buildAnimations(getAnimations(renderable));
-            textures.get(renderable.id).buildAnimations(anims);
-            animations.put(renderable.id, anims);
+            at.buildAnimations(anims);
+            textures.setAnimationData(renderable.id, anims);
+            textures.retain(renderable.id);
+            retained.getAndIncrement(renderable.id, 0, 1);
         }
     }
 
     public ObjectMap<String, AnimationData> getAnimations(Renderable renderable){
         ObjectMap<String, AnimationData> anims;
 
-        //TODO animations nunca tiene nada??? cuando creo block, no tiene las animations de hero.
-        if (animations.containsKey(renderable.id)) {
-            anims = animations.get(renderable.id);
-        }
-        else {
+        anims = textures.getAnimationData(renderable.id);
+        if (anims == null) {
             anims = new ObjectMap<String, AnimationData>();
         }
 
@@ -83,18 +457,179 @@ public class Renderer implements Disposable {
     }
 
     public void clearScene(){
+        clearCulling();
+        staticSprites.clear();
+        Renderable[] scene = renderablesInScene.items;
+        for(int i = 0, n = renderablesInScene.size; i < n; i++){
+            scene[i].sceneIndex = Renderable.UNINITIALIZED_ID;
+            scene[i].dirty = false;
+        }
         renderablesInScene.clear();
+        dirty.clear();
+        orderDirty = true;
+        wake();
     }
+
+    /**
+     * Adds the renderable in O(1). Adding one that's already in the scene does nothing.
+     */
     public void addToScene(Renderable renderable){
+        if(renderable.sceneIndex != Renderable.UNINITIALIZED_ID){
+            return;
+        }
+        if(renderable.isStatic){
+            staticSprites.add(renderable);
+            wake();
+            return;
+        }
+        renderable.sceneIndex = renderablesInScene.size;
         renderablesInScene.add(renderable);
+        onAdded(renderable);
+        wake();
     }
     public void addToScene(Renderable... renderables){
-        this.renderablesInScene.addAll(renderables);
+        addToScene(renderables, 0, renderables.length);
     }
     public void addToScene(Array<Renderable> renderables){
-        for(Renderable renderable: renderables) {
-            this.renderablesInScene.add(renderable);
+        addToScene(renderables.items, 0, renderables.size);
+    }
+
+    /**
+     * Bulk add without the varargs array.
+     */
+    public void addToScene(Renderable[] renderables, int start, int count){
+        renderablesInScene.ensureCapacity(count);
+        for(int i = start, end = start + count; i < end; i++) {
+            addToScene(renderables[i]);
+        }
+    }
+
+    /**
+     * Removes the renderable in O(1): the last renderable of the scene takes its place
+     * (the draw order doesn't change, it's sorted again). Removing one that's not in the scene does nothing.
+     */
+    public void removeFromScene(Renderable renderable){
+        int index = renderable.sceneIndex;
+        if(index == Renderable.UNINITIALIZED_ID){
+            return;
         }
+        wake();
+        if(renderable.inStatics){
+            staticSprites.remove(renderable);
+            return;
+        }
+
+        Renderable last = renderablesInScene.pop();
+        if(last != renderable){
+            renderablesInScene.items[index] = last;
+            last.sceneIndex = index;
+        }
+        renderable.sceneIndex = Renderable.UNINITIALIZED_ID;
+
+        // Si estaba en el drawQueue lo saca el próximo cullScene(), ya no está en la grilla
+        if(renderable.gridHandle != Renderable.UNINITIALIZED_ID){
+            sceneGrid.remove(renderable.gridHandle);
+            gridOwners.set(renderable.gridHandle, null);
+            renderable.gridHandle = Renderable.UNINITIALIZED_ID;
+        }
+        orderDirty = true;
+    }
+    public void removeFromScene(Array<Renderable> renderables){
+        removeFromScene(renderables.items, 0, renderables.size);
+    }
+
+    /**
+     * Bulk remove without the varargs array.
+     */
+    public void removeFromScene(Renderable[] renderables, int start, int count){
+        for(int i = start, end = start + count; i < end; i++) {
+            removeFromScene(renderables[i]);
+        }
+    }
+
+    /**
+     * Rebuilds the cached static renderables on the next frame. Call it after changing a static renderable
+     * that's already in the scene (adding and removing them already does it).
+     */
+    public void markStaticDirty(){
+        staticSprites.invalidate();
+        wake();
+    }
+
+    public boolean isInScene(Renderable renderable){
+        return renderable.sceneIndex != Renderable.UNINITIALIZED_ID;
+    }
+
+    /**
+     * With dirty tracking the Renderer stops checking every renderable on each frame: the culling grid is only
+     * updated for the renderables marked with markDirty(), and the draw order is only sorted again when something
+     * was marked, added or removed (or entered the camera view).
+     * It's off by default. When it's on, call markDirty() every time you change x, y, width, height, layer or zOrder
+     * of a renderable in the scene, or it won't be culled/sorted right.
+     */
+    public void setDirtyTracking(boolean enabled){
+        dirtyTracking = enabled;
+        orderDirty = true;
+    }
+
+    /**
+     * The renderable moved, changed its size or its draw order. Only needed with setDirtyTracking(true),
+     * or for static renderables (same as markStaticDirty()).
+     */
+    public void markDirty(Renderable renderable){
+        wake();
+        if(renderable.inStatics){
+            staticSprites.invalidate();
+            return;
+        }
+        if(!dirtyTracking || renderable.sceneIndex == Renderable.UNINITIALIZED_ID){
+            return;
+        }
+
+        if(!renderable.dirty){
+            renderable.dirty = true;
+            dirty.add(renderable);
+        }
+        orderDirty = true;
+    }
+
+    private void onAdded(Renderable renderable){
+        renderable.animClock = sceneTime - tickDelta; // El próximo render(alpha) dibuja dentro del último step
+        orderDirty = true;
+        if(culling){
+            index(renderable);
+        }
+    }
+
+    private void index(Renderable renderable){
+        if(renderable.gridHandle != Renderable.UNINITIALIZED_ID){
+            return; // Ya está en la grilla (se agregó 2 veces a la scene)
+        }
+
+        int handle = sceneGrid.add(renderable.x, renderable.y, renderable.width, renderable.height);
+        while(gridOwners.size <= handle){
+            gridOwners.add(null);
+        }
+        gridOwners.set(handle, renderable);
+        renderable.gridHandle = handle;
+    }
+
+    /**
+     * Empties the culling structures (not the scene).
+     */
+    private void clearCulling(){
+        if(sceneGrid != null){
+            sceneGrid.clear();
+        }
+        for(Renderable renderable : renderablesInScene){
+            renderable.gridHandle = Renderable.UNINITIALIZED_ID;
+        }
+        for(Renderable renderable : drawQueue){
+            renderable.inDrawQueue = false; // Puede tener alguno que ya se sacó de la scene
+        }
+        gridOwners.clear();
+        drawQueue.clear();
+        orderDirty = true;
     }
 
     /**
@@ -107,7 +642,7 @@ public class Renderer implements Disposable {
      * @return
      */
     public Animation getAnimation(Renderable renderable, String name){
-        if(textures.containsKey(renderable.id)){
+        if(textures.isLoaded(renderable.id)){
             return textures.get(renderable.id).getAnimation(name);
         } else {
             Gdx.app.log("WARN", "Renderer - Se intentó obtener la animación \""+name+"\" pero el Renderable \""+renderable.texturePath+"\" no está cargado en la lista del Renderer.\nLlamaste al prepareTextures()???");
@@ -115,6 +650,51 @@ public class Renderer implements Disposable {
         return null;
     }
 
+    /**
+     * Compiled handle of an animation for the texture of this renderable.
+     * Handles don't change once given, so ask for them once (after prepareTextures()) and use
+     * Renderable.setAnimation(int) on the hot path.
+     *
+     * @param renderable any renderable with the texture
+     * @param name nombre de la animación
+     * @return the handle, or AnimatedTexture.NO_ANIMATION if the texture isn't loaded
+     */
+    public int getAnimationHandle(Renderable renderable, String name){
+        AnimatedTexture at = textures.get(renderable.id);
+        if(at == null){
+            Gdx.app.log("WARN", "Renderer - Se intentó obtener la animación \""+name+"\" pero el Renderable \""+renderable.texturePath+"\" no está cargado en la lista del Renderer.\nLlamaste al prepareTextures()???");
+            return AnimatedTexture.NO_ANIMATION;
+        }
+        return at.getAnimationHandle(name);
+    }
+
+    /**
+     * Same as getAnimationHandle(Renderable, String) for the texture of the type.
+     */
+    public int getAnimationHandle(RenderableType type, String name){
+        return getAnimationHandle(type.getPrototype(), name);
+    }
+
+    /**
+     * Sets the requested animation of the renderable as the playing one.
+     */
+    void applyAnimation(Renderable renderable){
+        applyAnimation(renderable, textures.get(renderable.id));
+    }
+
+    private void applyAnimation(Renderable renderable, AnimatedTexture at){
+        int handle = renderable.requestedAnimation;
+        if(handle == AnimatedTexture.NO_ANIMATION){
+            handle = at.getAnimationHandle(renderable.curAnimationId);
+        }
+
+        renderable.curAnimationHandle = handle;
+        renderable.curAnimation = at.getAnimation(handle);
+        renderable.looping = at.isLooping(handle);
+        renderable.changeAnimation = false;
+        metrics.increment(Metric.ANIMATION_CHANGES);
+    }
+
     /**
      * Get the animations list corresponding to the renderable.id.
      * If you use the same asset for multiple objects, the animations must be set
@@ -126,7 +706,7 @@ public class Renderer implements Disposable {
     public ObjectMap<String, AnimationData> getAnimationsList(Renderable renderable){
         ObjectMap<String, AnimationData> list = new ObjectMap<String, AnimationData>();
 
-        if(textures.containsKey(renderable.id)){
+        if(textures.isLoaded(renderable.id)){
             list = textures.get(renderable.id).getAnimationsList();
         }
 
@@ -134,46 +714,634 @@ public class Renderer implements Disposable {
     }
 
     /**
-     * The update method is called before render()
+     * The update method is called before render(), once per frame.
      */
     public void update(){
+        if(loader != null){
+            loader.update(uploadBudgetNanos);
+        }
+        if(camera != null) {
+            for (int i = 0; i < tileLayers.size; i++) {
+                tileLayers.get(i).update(camera);
+            }
+        }
     }
 
+    /**
+     * One fixed step of the simulation. Call it before moving things in each step:
+     * prevX/prevY keep the position of the start of the step (used to interpolate and for collisions)
+     * and the animation clock advances "delta" seconds.
+     */
+    public void tick(float delta){
+        parallel.run(tickPass, renderablesInScene.size);
+        for(int i = 0; i < sources.size; i++){
+            CommandSource source = sources.get(i);
+            source.snapshotPositions();
+            source.step(delta);
+        }
+
+        sceneTime += delta;
+        tickDelta = delta;
+    }
+
+    /**
+     * Variable timestep render: the animations advance with the frame delta, it draws at x/y and then
+     * syncs prevX/prevY with x/y.
+     */
     public void render(){
-        if(renderablesInScene.size == 0){
+        renderDelta(Gdx.graphics.getDeltaTime());
+    }
+
+    /**
+     * Like render(), with a delta given by the caller (e.g. the time a paused scene was not drawn).
+     * Advances and draws at the same time, so it doesn't have to be preceded by a tick(). It leaves no step
+     * pending either: a render(alpha) after it without a tick() draws at this same time.
+     */
+    public void renderDelta(float delta){
+        sceneTime += delta;
+        tickDelta = 0;
+        for(int i = 0; i < sources.size; i++){
+            sources.get(i).step(delta);
+        }
+        draw(1, sceneTime);
+        syncScene(true, sceneTime);
+    }
+
+    /**
+     * Fixed timestep render, to be used together with tick().
+     *
+     * @param alpha how far we are between the last tick and the next one (0..1). Renderables are drawn
+     *              at prevX + (x - prevX) * alpha (same for y), inside the last step, and the animations
+     *              at the same point of that step.
+     */
+    public void render(float alpha){
+        float drawTime = sceneTime - (1 - alpha) * tickDelta;
+        draw(alpha, drawTime);
+        syncScene(false, drawTime);
+    }
+
+    private void draw(float alpha, float drawTime){
+        if(renderablesInScene.size == 0 && sources.size == 0 && staticSprites.size() == 0 && tileLayers.size == 0){
             Gdx.app.log("WARN", "Renderer - Pantalla en negro. No hay Renderables cargados en la scene (renderablesInScene)!!!");
+            commands.clear();
+            submitRanges.clear();
+            idle = idleDetection && (loader == null || !loader.isBusy());
             return;
         }
 
-        batch.begin();
-        for(Renderable curRenderable: renderablesInScene){
+        frameId++;
+        textures.nextFrame();
+
+        Array<Renderable> toDraw = renderablesInScene;
+        if(culling && camera != null){
+            cullScene();
+            toDraw = drawQueue;
+        }
+        if(orderDirty || !dirtyTracking) {
+            sort(toDraw);
+            orderDirty = false;
+        }
+        clearDirty();
+
+        metrics.add(Metric.SUBMITTED, renderablesInScene.size);
+        metrics.add(Metric.CULLED, renderablesInScene.size - toDraw.size);
+
+        // 1) Texturas y cambios de animación, en el render thread porque pueden tocar GL (recargar texturas desalojadas)
+        Renderable[] items = toDraw.items;
+        for(int i = 0, n = toDraw.size; i < n; i++){
+            Renderable curRenderable = items[i];
+            curRenderable.ready = false;
             if(curRenderable.visible) {
                 AnimatedTexture at = textures.get(curRenderable.id);
                 if(at == null){
-                    Gdx.app.log("ERR", "Renderer - No tengo cargada la textura \""+curRenderable.texturePath+"\" en el Renderer.\nLlamaste al prepareTextures()???");
-                    continue;
+                    if(!textures.isReferenced(curRenderable.id)) {
+                        Gdx.app.log("ERR", "Renderer - No tengo cargada la textura \""+curRenderable.texturePath+"\" en el Renderer.\nLlamaste al prepareTextures()???");
+                        continue;
+                    }
+                    at = textures.reload(curRenderable.id); // La desalojó el LRU
                 }
+                textures.touch(curRenderable.id);
 
                 if(curRenderable.changeAnimation){
-                    curRenderable.setAnimation(curRenderable.curAnimationId, this);
+                    applyAnimation(curRenderable, at);
+                } else if(curRenderable.curAnimationHandle != AnimatedTexture.NO_ANIMATION){
+                    // Si la textura se recargó, los Animation viejos apuntan a una Texture liberada
+                    curRenderable.curAnimation = at.getAnimation(curRenderable.curAnimationHandle);
                 }
 
-                at.draw(batch, curRenderable);
-                curRenderable.syncBounds(); // Synchronize the bounds object to the new position
+                if(curRenderable.curAnimation == null){
+                    Gdx.app.log("WARN", "Renderer - El Renderable \""+curRenderable.texturePath+"\" no tiene animación. No se muestra nada!!!");
+                    continue;
+                }
+                curRenderable.ready = true;
+                if(idleDetection && !animating){
+                    animating = isAnimating(curRenderable.curAnimation, curRenderable.looping, curRenderable.animElapsedTime);
+                }
+            }
+        }
+
+        // 2) Reloj de la animación y comando de dibujo de cada uno, un slot por renderable (en paralelo si hay threads)
+        commands.reserve(toDraw.size);
+        framePass.alpha = alpha;
+        framePass.drawTime = drawTime;
+        framePass.items = items;
+        parallel.run(framePass, toDraw.size);
+        framePass.items = null;
+
+        // Los stores y emitters van a continuación, y junto con los caches estáticos se intercalan por layer en los rangos de submit
+        boolean staticRebuilt = staticSprites.update(this, textures, batch.getPackedColor());
+        recordLayers(items, toDraw.size, alpha, drawTime);
+        if(idleDetection){
+            idle = detectIdle(staticRebuilt, drawTime);
+        }
+
+        // 3) Submit al batch, siempre en orden y desde este thread
+        int drawn = submitCommands();
 
-                // We sync the prevX, prevY with x and y
-                curRenderable.prevX = curRenderable.x;
-                curRenderable.prevY = curRenderable.y;
+        metrics.add(Metric.DRAWN, drawn);
+        metrics.add(Metric.TEXTURE_SWITCHES, commands.getTextureSwitches());
+        metrics.add(Metric.DRAW_CALLS, lastDrawCalls);
+
+    }
+
+    /**
+     * Compares the frame just recorded with the previous one and keeps a copy of it for the next comparison.
+     */
+    private boolean detectIdle(boolean staticRebuilt, float drawTime){
+        boolean same = !animating && !staticRebuilt
+                && commands.sameAs(previousCommands) && submitRanges.equals(previousRanges);
+        animating = false;
+
+        for(int i = 0; i < sources.size && same; i++){
+            same = !sources.get(i).isAnimating(textures, drawTime);
+        }
+        for(int i = 0; i < tileLayers.size && same; i++){
+            same = !tileLayers.get(i).isStreaming();
+        }
+        if(loader != null && loader.isBusy()){
+            same = false;
+        }
+        if(camera != null){
+            float[] view = camera.combined.val;
+            for(int i = 0; i < view.length; i++){
+                if(view[i] != lastView[i]){
+                    lastView[i] = view[i];
+                    same = false;
+                }
+            }
+        }
+
+        if(!same){
+            previousCommands.copyFrom(commands);
+            previousRanges.clear();
+            previousRanges.addAll(submitRanges);
+        }
+        return same;
+    }
+
+    /**
+     * @return true if the animation still changes frames after "time" seconds
+     */
+    static boolean isAnimating(Animation animation, boolean looping, float time){
+        if(animation == null || animation.getKeyFrames().length < 2){
+            return false;
+        }
+        return looping || !animation.isAnimationFinished(time);
+    }
+
+    /**
+     * Draws again the commands recorded by the last render(), without touching the scene
+     * (animations don't advance, nothing is culled or sorted again).
+     * Set another projection matrix on the batch first to draw the same frame in another viewport (minimap, split screen, a FrameBuffer...).
+     */
+    public void replay(){
+        submitCommands();
+    }
+
+    /**
+     * Records every store and emitter after the scene commands and builds the submit ranges, merging by layer:
+     * the tile layers and static cache of a layer go before its renderables, and the stores/emitters right after the last
+     * renderable of their layer (the scene is already sorted by layer).
+     */
+    private void recordLayers(Renderable[] items, int sceneCount, float alpha, float drawTime){
+        submitRanges.clear();
+        RecordContext context = recordContext;
+        context.alpha = alpha;
+        context.time = drawTime;
+        context.cull = culling && camera != null;
+        if(context.cull){
+            context.viewWidth = camera.viewportWidth * camera.zoom;
+            context.viewHeight = camera.viewportHeight * camera.zoom;
+            context.viewX = camera.position.x - context.viewWidth / 2;
+            context.viewY = camera.position.y - context.viewHeight / 2;
+        }
+
+        int from = 0;
+        int nextTiles = 0, nextStatic = 0, nextSource = 0;
+        int staticCount = staticSprites.getLayerCount();
+        while(nextTiles < tileLayers.size || nextStatic < staticCount || nextSource < sources.size){
+            // Lo de layer más bajo primero. En el mismo layer: tiles, estáticos, renderables y por último stores/emitters
+            int tilesLayer = nextTiles < tileLayers.size ? tileLayers.get(nextTiles).getLayer() : Integer.MAX_VALUE;
+            int staticLayer = nextStatic < staticCount ? staticSprites.getLayer(nextStatic) : Integer.MAX_VALUE;
+            int sourceLayer = nextSource < sources.size ? sources.get(nextSource).getLayer() : Integer.MAX_VALUE;
+            int to = from;
+
+            if(nextTiles < tileLayers.size && tilesLayer <= staticLayer && tilesLayer <= sourceLayer){
+                while(to < sceneCount && items[to].layer < tilesLayer){
+                    to++;
+                }
+                addRange(from, to);
+                addRange(-1 - nextTiles, TILES_RANGE);
+                nextTiles++;
+            } else if(nextStatic < staticCount && staticLayer <= sourceLayer){
+                while(to < sceneCount && items[to].layer < staticLayer){
+                    to++;
+                }
+                addRange(from, to);
+                addRange(-1 - nextStatic, STATIC_RANGE);
+                nextStatic++;
+            } else {
+                CommandSource source = sources.get(nextSource);
+                source.prepare(textures);
+
+                int count = source.size();
+                sourcePass.source = source;
+                sourcePass.start = commands.append(count);
+                parallel.run(sourcePass, count);
+
+                while(to < sceneCount && items[to].layer <= sourceLayer){
+                    to++;
+                }
+                addRange(from, to);
+                addRange(sourcePass.start, sourcePass.start + count);
+                nextSource++;
+            }
+            from = to;
+        }
+        addRange(from, sceneCount);
+        sourcePass.source = null;
+    }
+
+    /**
+     * Sends the recorded frame to the batch (and the static caches in between).
+     * @return sprites drawn
+     */
+    private int submitCommands(){
+        commands.resetStats();
+        lastDrawCalls = 0;
+        int drawn = 0;
+
+        batch.begin();
+        for(int i = 0; i < submitRanges.size; i += 2){
+            int from = submitRanges.get(i);
+            int to = submitRanges.get(i + 1);
+            if(from >= 0) {
+                drawn += commands.submit(batch, from, to);
+            } else {
+                // Los SpriteCache no se pueden usar con el batch abierto
+                batch.end();
+                countDrawCalls();
+                if(to == STATIC_RANGE) {
+                    drawn += staticSprites.draw(-1 - from, batch);
+                } else {
+                    TileLayer tiles = tileLayers.get(-1 - from);
+                    drawn += tiles.draw(batch);
+                    lastDrawCalls += tiles.takeRenderCalls();
+                }
+                batch.begin();
             }
         }
         batch.end();
+        countDrawCalls();
+        lastDrawCalls += staticSprites.takeRenderCalls();
+
+        return drawn;
+    }
+
+    private void addRange(int from, int to){
+        submitRanges.add(from);
+        submitRanges.add(to);
+    }
+
+    private void countDrawCalls(){
+        if(batch instanceof SpriteBatch){
+            lastDrawCalls += ((SpriteBatch)batch).renderCalls; // Se resetea en el begin()
+        }
+    }
+
+    /**
+     * Creates a structure of arrays store of sprites, drawn by this Renderer in the given layer.
+     *
+     * @param layer same meaning as Renderable.layer
+     * @param capacity initial capacity (it grows if needed)
+     */
+    public RenderableStore createStore(int layer, int capacity){
+        RenderableStore store = new RenderableStore(this, layer, capacity);
+        addSource(store.source);
+        return store;
+    }
+
+    public void removeStore(RenderableStore store){
+        sources.removeValue(store.source, true);
+        wake();
+    }
+
+    /**
+     * Creates a particle emitter drawn (and simulated) by this Renderer in the given layer.
+     *
+     * @param maxParticles hard cap of live particles, everything is allocated here
+     */
+    public ParticleEmitter createEmitter(int layer, int maxParticles){
+        ParticleEmitter emitter = new ParticleEmitter(this, layer, maxParticles);
+        addSource(emitter.source);
+        return emitter;
+    }
+
+    public void removeEmitter(ParticleEmitter emitter){
+        sources.removeValue(emitter.source, true);
+        wake();
+    }
+
+    private void addSource(CommandSource source){
+        int index = 0;
+        while(index < sources.size && sources.get(index).getLayer() <= source.getLayer()){
+            index++;
+        }
+        sources.insert(index, source);
+        wake();
+    }
+
+    /**
+     * Draws the tile layer in its layer (before the renderables of that layer) and streams its chunks around
+     * the camera in update(). The Renderer doesn't dispose it.
+     */
+    public void addTileLayer(TileLayer tiles){
+        int index = 0;
+        while(index < tileLayers.size && tileLayers.get(index).getLayer() <= tiles.getLayer()){
+            index++;
+        }
+        tileLayers.insert(index, tiles);
+        wake();
+    }
+
+    public void removeTileLayer(TileLayer tiles){
+        tileLayers.removeValue(tiles, true);
+        wake();
+    }
+
+    /**
+     * The clock of the animations, in seconds.
+     */
+    public float getSceneTime(){
+        return sceneTime;
+    }
+
+    /**
+     * The draw commands of the last frame, in draw order.
+     */
+    public DrawCommandBuffer getDrawCommands(){
+        return commands;
+    }
+
+    /**
+     * Bulk pass over the whole scene (the culled renderables too) that syncs the bounds
+     * to the new position and prevX/prevY with x and y. World space only, no allocations.
+     * The animation clock of the hidden renderables is held at drawTime, so they don't accumulate the hidden time.
+     *
+     * @param syncPrev false with fixed timestep, there tick() is the one that moves prevX/prevY
+     */
+    private void syncScene(boolean syncPrev, float drawTime){
+        scenePass.syncPrev = syncPrev;
+        scenePass.drawTime = drawTime;
+        parallel.run(scenePass, renderablesInScene.size);
+        if(syncPrev) {
+            for (int i = 0; i < sources.size; i++) {
+                sources.get(i).snapshotPositions();
+            }
+        }
+    }
+
+    /**
+     * Animation clock and draw command of the renderables that passed the first step of draw().
+     * Each renderable only touches its own fields and its own slot of the command buffer.
+     */
+    private class FramePass implements ParallelPass.Body {
+        Renderable[] items;
+        float alpha;
+        float drawTime;
+
+        @Override
+        public void run(int from, int to) {
+            for(int i = from; i < to; i++){
+                Renderable cur = items[i];
+                if(!cur.ready){
+                    commands.skip(i);
+                    continue;
+                }
+
+                advanceAnimation(cur, drawTime);
+                if(alpha == 1) {
+                    AnimatedTexture.record(cur, cur.x, cur.y, commands, i);
+                } else {
+                    AnimatedTexture.record(cur,
+                            cur.prevX + (cur.x - cur.prevX) * alpha,
+                            cur.prevY + (cur.y - cur.prevY) * alpha,
+                            commands, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Body of syncScene().
+     */
+    private class ScenePass implements ParallelPass.Body {
+        boolean syncPrev;
+        float drawTime;
+
+        @Override
+        public void run(int from, int to) {
+            Renderable[] scene = renderablesInScene.items;
+            for(int i = from; i < to; i++){
+                Renderable cur = scene[i];
+                if(cur.visible) {
+                    Rectangle bounds = cur.bounds;
+                    if(bounds != null) {
+                        bounds.x = cur.x + cur.offsetX;
+                        bounds.y = cur.y + cur.offsetY;
+                    }
+
+                    // We sync the prevX, prevY with x and y
+                    if(syncPrev) {
+                        cur.prevX = cur.x;
+                        cur.prevY = cur.y;
+                    }
+                } else {
+                    cur.animClock = Math.max(cur.animClock, drawTime); // Oculto, la animación no avanza
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the sprites of one store or emitter.
+     */
+    private class SourcePass implements ParallelPass.Body {
+        CommandSource source;
+        int start;
+
+        @Override
+        public void run(int from, int to) {
+            source.record(from, to, commands, start, recordContext);
+        }
+    }
+
+    /**
+     * Body of tick(), snapshot of the positions at the start of the step.
+     */
+    private class TickPass implements ParallelPass.Body {
+        @Override
+        public void run(int from, int to) {
+            Renderable[] scene = renderablesInScene.items;
+            for(int i = from; i < to; i++){
+                Renderable cur = scene[i];
+                cur.prevX = cur.x;
+                cur.prevY = cur.y;
+            }
+        }
+    }
+
+    /**
+     * Moves the animation clock of the renderable up to the scene clock.
+     * If it was culled it catches up all the time it was off-screen in one step, unless it has freezeWhenCulled set,
+     * in which case it continues from the frame it had when it left the screen.
+     * The time it was hidden (visible = false) never counts, syncScene() holds its clock.
+     */
+    private void advanceAnimation(Renderable renderable, float drawTime){
+        boolean wasDrawn = renderable.drawnFrame == frameId - 1;
+        float delta = drawTime - renderable.animClock;
+        if(delta > 0 && (wasDrawn || !renderable.freezeWhenCulled)){
+            renderable.animElapsedTime += delta;
+        }
+        renderable.animClock = Math.max(renderable.animClock, drawTime); // El reloj nunca vuelve para atrás
+        renderable.drawnFrame = frameId;
+    }
+
+    /**
+     * Updates the grid with the renderables that moved and queries it with the camera view.
+     * The drawQueue keeps the order of the previous frame: the ones that went out of the view are removed
+     * and the ones that came in are appended at the end (the sort places them later).
+     */
+    private void cullScene(){
+        // Con dirty tracking solo los marcados, si no toda la scene
+        Array<Renderable> moved = dirtyTracking ? dirty : renderablesInScene;
+        Renderable[] scene = moved.items;
+        for(int i = 0, n = moved.size; i < n; i++){
+            Renderable cur = scene[i];
+            if(cur.gridHandle != Renderable.UNINITIALIZED_ID) {
+                sceneGrid.update(cur.gridHandle, cur.x, cur.y, cur.width, cur.height); // Solo hace algo si cambió de celda
+            }
+        }
+
+        float viewWidth = camera.viewportWidth * camera.zoom;
+        float viewHeight = camera.viewportHeight * camera.zoom;
+        visibleHandles.clear();
+        sceneGrid.query(camera.position.x - viewWidth / 2, camera.position.y - viewHeight / 2, viewWidth, viewHeight, visibleHandles);
+
+        for(int i = 0; i < visibleHandles.size; i++){
+            Renderable cur = gridOwners.get(visibleHandles.get(i));
+            cur.culledFrame = frameId;
+            if(!cur.inDrawQueue){
+                cur.inDrawQueue = true;
+                drawQueue.add(cur);
+                orderDirty = true;
+            }
+        }
+
+        Renderable[] queue = drawQueue.items;
+        int kept = 0;
+        for(int i = 0, n = drawQueue.size; i < n; i++){
+            Renderable cur = queue[i];
+            if(cur.culledFrame == frameId){
+                queue[kept++] = cur;
+            } else {
+                cur.inDrawQueue = false;
+            }
+        }
+        drawQueue.truncate(kept);
+    }
+
+    private void clearDirty(){
+        Renderable[] items = dirty.items;
+        for(int i = 0, n = dirty.size; i < n; i++){
+            items[i].dirty = false;
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Insertion sort (stable) using the previous frame's order as a starting point.
+     * Between frames the order barely changes, so this is almost always a single O(n) pass.
+     */
+    private void sort(Array<Renderable> renderables){
+        Renderable[] items = renderables.items;
+        for(int i = 1, n = renderables.size; i < n; i++){
+            Renderable cur = items[i];
+            int j = i - 1;
+            while(j >= 0 && compareDrawOrder(items[j], cur) > 0){
+                items[j + 1] = items[j];
+                j--;
+            }
+            items[j + 1] = cur;
+        }
+    }
+
+    /**
+     * Layer first, then zOrder and then the texture id, so sprites sharing a texture are drawn one after the other.
+     */
+    static int compareDrawOrder(Renderable a, Renderable b){
+        if(a.layer != b.layer){
+            return a.layer < b.layer ? -1 : 1;
+        }
+        if(a.zOrder != b.zOrder){
+            return a.zOrder < b.zOrder ? -1 : 1;
+        }
+        return a.id - b.id;
+    }
+
+    /**
+     * Per-frame counters (drawn, culled, texture switches, draw calls...).
+     * The Game opens and closes each frame and adds its own timings.
+     */
+    public FrameMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Maximum amount of texture memory (estimated) before the least recently drawn textures are evicted.
+     * Evicted textures are reloaded when they're drawn again.
+     */
+    public void setTextureMemoryBudget(long bytes){
+        textures.setMemoryBudget(bytes);
     }
 
     @Override
     public void dispose() {
-        // Llamo a dispose en cada AnimatedTexture registrada
-        for(ObjectMap.Entry<Integer, AnimatedTexture> entry : textures.entries()){
-            entry.value.dispose();
+        // Suelto solo lo que retuvo este Renderer, el registry es compartido.
+        // Las texturas que no usa nadie más se descargan (y las páginas de atlas que quedan vacías)
+        IntIntMap.Entries it = retained.entries();
+        while(it.hasNext()){
+            IntIntMap.Entry cur = it.next();
+            for(int i = 0; i < cur.value; i++){
+                textures.release(cur.key);
+            }
+        }
+        retained.clear();
+
+        if(loader != null){
+            loader.dispose();
         }
+        parallel.dispose();
+        staticSprites.dispose();
     }
 }
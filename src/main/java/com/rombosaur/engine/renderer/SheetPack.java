@@ -0,0 +1,159 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Archivo binario con las definiciones de RenderableType (spritesheet, grilla, tamaños y animaciones),
+ * generado offline con SheetPackWriter.
+ *
+ * Absolute, Local and External files are memory mapped (FileChannel.map()). Internal and Classpath files
+ * (Android assets, jars) can't be mapped, they're read in one go. The types are read straight from the buffer, with a shared string table for paths and
+ * animation names, and registered in RenderableTypeRegistry in file order, so the ids are the same on every run
+ * as long as the packs are loaded in the same order. Each file is read and registered once, loading it again returns
+ * the types it already registered.
+ * Then prepare them with Renderer.prepareTypes(), no Renderable.buildAnimations() is involved.
+ *
+ * Format (big endian, counts and indices are unsigned shorts):
+ *   int MAGIC, short VERSION
+ *   short stringCount, per string: short byteCount, UTF-8 bytes
+ *   short typeCount, per type:
+ *     short path (string index), short cols, short rows,
+ *     float width, height, boundsWidth, boundsHeight, offsetX, offsetY,
+ *     short animationCount, per animation:
+ *       short name (string index), byte fps, byte loop, short frameCount, short[frameCount] frames
+ */
+public class SheetPack {
+    static final int MAGIC = 0x52534850; // "RSHP"
+    static final short VERSION = 1;
+
+    private static final ObjectMap<String, Array<RenderableType>> loaded = new ObjectMap<String, Array<RenderableType>>();
+
+    private SheetPack() {}
+
+    /**
+     * Reads every type of the file and registers them. If the file was already loaded it returns the same types,
+     * without reading or registering anything.
+     *
+     * @return the types, in file order
+     */
+    public static synchronized Array<RenderableType> load(FileHandle file){
+        Array<RenderableType> types = loaded.get(file.path());
+        if(types != null){
+            return types;
+        }
+
+        ByteBuffer buffer;
+        FileType type = file.type();
+        if(type == FileType.Absolute || type == FileType.Local || type == FileType.External){
+            buffer = map(file);
+        } else {
+            buffer = ByteBuffer.wrap(file.readBytes()); // No se puede mapear, se lee entero
+        }
+
+        try {
+            types = read(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new RuntimeException("SheetPack - El archivo \""+file.path()+"\" está truncado", e);
+        }
+
+        RenderableTypeRegistry registry = RenderableTypeRegistry.getInstance();
+        for(int i = 0; i < types.size; i++){
+            registry.register(types.get(i));
+        }
+        loaded.put(file.path(), types);
+        return types;
+    }
+
+    /**
+     * Read only mapping of the whole file. The mapping stays valid after the file is closed.
+     */
+    private static ByteBuffer map(FileHandle file){
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file.file(), "r");
+            FileChannel channel = input.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Big endian, como lo escribe el writer
+        } catch (IOException e) {
+            throw new RuntimeException("SheetPack - No se pudo mapear el archivo \""+file.path()+"\"", e);
+        } finally {
+            if(input != null){
+                try {
+                    input.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Reads the types without registering them.
+     */
+    static Array<RenderableType> read(ByteBuffer buffer){
+        if(buffer.getInt() != MAGIC){
+            throw new RuntimeException("SheetPack - No es un sheet pack");
+        }
+        short version = buffer.getShort();
+        if(version != VERSION){
+            throw new RuntimeException("SheetPack - Versión "+version+" no soportada, se esperaba "+VERSION);
+        }
+
+        String[] strings = new String[buffer.getShort() & 0xFFFF];
+        byte[] bytes = new byte[64];
+        for(int i = 0; i < strings.length; i++){
+            int length = buffer.getShort() & 0xFFFF;
+            if(length > bytes.length){
+                bytes = new byte[length];
+            }
+            buffer.get(bytes, 0, length);
+            strings[i] = utf8(bytes, length);
+        }
+
+        int typeCount = buffer.getShort() & 0xFFFF;
+        Array<RenderableType> types = new Array<RenderableType>(typeCount);
+        for(int i = 0; i < typeCount; i++){
+            String path = strings[buffer.getShort() & 0xFFFF];
+            int cols = buffer.getShort();
+            int rows = buffer.getShort();
+            RenderableType type = new RenderableType(path, cols, rows);
+            type.setSize(buffer.getFloat(), buffer.getFloat());
+            type.setBounds(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+
+            int animationCount = buffer.getShort() & 0xFFFF;
+            for(int j = 0; j < animationCount; j++){
+                String name = strings[buffer.getShort() & 0xFFFF];
+                byte fps = buffer.get();
+                boolean loop = buffer.get() != 0;
+                short[] frames = new short[buffer.getShort() & 0xFFFF];
+                buffer.asShortBuffer().get(frames); // En bloque, el ShortBuffer es una vista sin copia
+                buffer.position(buffer.position() + frames.length * 2);
+                for(int k = 0; k < frames.length; k++){
+                    if(frames[k] < 0 || frames[k] >= cols * rows){
+                        throw new RuntimeException("SheetPack - La animación \""+name+"\" de \""+path+"\" usa el frame "
+                                +frames[k]+" y la grilla tiene "+(cols * rows));
+                    }
+                }
+                type.addAnimation(name, frames, fps, loop);
+            }
+
+            types.add(type);
+        }
+        return types;
+    }
+
+    private static String utf8(byte[] bytes, int length){
+        try {
+            return new String(bytes, 0, length, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e); // Todas las JVM tienen UTF-8
+        }
+    }
+}
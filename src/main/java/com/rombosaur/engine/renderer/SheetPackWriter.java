@@ -0,0 +1,115 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a SheetPack file. Meant for an offline build step (a small main() in the desktop or tools project
+ * that defines the types and writes the file into the assets), it doesn't need GL nor a running app.
+ *
+ * The types are written in the order they're added, which is the order (and the RenderableTypeRegistry ids)
+ * they'll have when loaded.
+ */
+public class SheetPackWriter {
+    private final Array<RenderableType> types;
+
+    public SheetPackWriter() {
+        types = new Array<RenderableType>();
+    }
+
+    public SheetPackWriter add(RenderableType type){
+        ObjectMap.Entries<String, AnimationData> it = type.getAnimations().entries();
+        while(it.hasNext()){
+            ObjectMap.Entry<String, AnimationData> cur = it.next();
+            short[] frames = cur.value.frames;
+            for(int i = 0; i < frames.length; i++){
+                if(frames[i] < 0 || frames[i] >= type.framesCols * type.framesRows){
+                    throw new RuntimeException("SheetPackWriter - La animación \""+cur.key+"\" de \""+type.texturePath+"\" usa el frame "+frames[i]+", que no está en la grilla");
+                }
+            }
+        }
+        types.add(type);
+        return this;
+    }
+
+    public void write(FileHandle file){
+        OutputStream out = file.write(false);
+        try {
+            write(out);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    public void write(OutputStream output){
+        // Tabla de strings: paths y nombres de animaciones, cada uno una sola vez
+        ObjectIntMap<String> stringIds = new ObjectIntMap<String>();
+        Array<String> strings = new Array<String>();
+        for(RenderableType type : types){
+            addString(type.texturePath, stringIds, strings);
+            ObjectMap.Keys<String> names = type.getAnimations().keys();
+            while(names.hasNext()){
+                addString(names.next(), stringIds, strings);
+            }
+        }
+
+        try {
+            DataOutputStream out = new DataOutputStream(output);
+            out.writeInt(SheetPack.MAGIC);
+            out.writeShort(SheetPack.VERSION);
+
+            out.writeShort(strings.size);
+            for(String string : strings){
+                byte[] bytes = string.getBytes("UTF-8");
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeShort(types.size);
+            for(RenderableType type : types){
+                out.writeShort(stringIds.get(type.texturePath, -1));
+                out.writeShort(type.framesCols);
+                out.writeShort(type.framesRows);
+                out.writeFloat(type.width);
+                out.writeFloat(type.height);
+                out.writeFloat(type.boundsWidth);
+                out.writeFloat(type.boundsHeight);
+                out.writeFloat(type.offsetX);
+                out.writeFloat(type.offsetY);
+
+                ObjectMap<String, AnimationData> animations = type.getAnimations();
+                out.writeShort(animations.size);
+                ObjectMap.Entries<String, AnimationData> it = animations.entries();
+                while(it.hasNext()){
+                    ObjectMap.Entry<String, AnimationData> cur = it.next();
+                    AnimationData data = cur.value;
+                    out.writeShort(stringIds.get(cur.key, -1));
+                    out.writeByte(data.fps);
+                    out.writeByte(data.loop ? 1 : 0);
+                    out.writeShort(data.frames.length);
+                    for(int i = 0; i < data.frames.length; i++){
+                        out.writeShort(data.frames[i]);
+                    }
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("SheetPackWriter - No se pudo escribir el sheet pack", e);
+        }
+    }
+
+    private static void addString(String string, ObjectIntMap<String> ids, Array<String> strings){
+        if(!ids.containsKey(string)){
+            ids.put(string, strings.size);
+            strings.add(string);
+        }
+    }
+}
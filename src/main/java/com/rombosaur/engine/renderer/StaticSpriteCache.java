@@ -0,0 +1,257 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntSet;
+
+import java.util.Comparator;
+
+/**
+ * The static renderables of the scene (Renderable.isStatic), compiled into a SpriteCache with one cache per layer.
+ * The vertices are built once and drawn with one call per texture, they're only rebuilt when the static set
+ * changes (add/remove/invalidate()), one of them is shown or hidden (Renderable.visible), one of their textures
+ * had to be reloaded or the color of the Batch changed (the color goes in the vertices).
+ * The frame drawn is the one the animation had when the cache was built.
+ */
+class StaticSpriteCache implements Disposable {
+    private static final Comparator<Renderable> DRAW_ORDER = new Comparator<Renderable>() {
+        @Override
+        public int compare(Renderable a, Renderable b) {
+            return Renderer.compareDrawOrder(a, b);
+        }
+    };
+
+    private final Array<Renderable> statics;
+    private boolean dirty;
+
+    private SpriteCache cache;
+    private int cacheSize;
+    private final IntArray layers;          // Layer de cada cache, en orden
+    private final IntArray cacheIds;
+    private final IntArray counts;          // Sprites en cada cache
+    private final IntArray textureIds;      // Texturas usadas por los caches
+    private float color;                    // Color del Batch con el que se armaron
+    private int renderCalls;
+
+    StaticSpriteCache() {
+        statics = new Array<Renderable>(true, 16, Renderable.class);
+        layers = new IntArray();
+        cacheIds = new IntArray();
+        counts = new IntArray();
+        textureIds = new IntArray();
+        color = Color.WHITE.toFloatBits();
+    }
+
+    void add(Renderable renderable){
+        renderable.sceneIndex = statics.size;
+        renderable.inStatics = true;
+        statics.add(renderable);
+        renderable.syncBounds(); // No se mueve, no la sincroniza nadie más
+        dirty = true;
+    }
+
+    void remove(Renderable renderable){
+        int index = renderable.sceneIndex;
+        Renderable last = statics.pop();
+        if(last != renderable){
+            statics.items[index] = last;
+            last.sceneIndex = index;
+        }
+        renderable.sceneIndex = Renderable.UNINITIALIZED_ID;
+        renderable.inStatics = false;
+        dirty = true;
+    }
+
+    void clear(){
+        for(int i = 0; i < statics.size; i++){
+            statics.items[i].sceneIndex = Renderable.UNINITIALIZED_ID;
+            statics.items[i].inStatics = false;
+        }
+        statics.clear();
+        dirty = true;
+    }
+
+    void invalidate(){
+        dirty = true;
+    }
+
+    int size(){
+        return statics.size;
+    }
+
+    /**
+     * Keeps the textures alive in the LRU and rebuilds the caches if needed. Render thread, once per frame.
+     *
+     * @param batchColor packed color of the Batch
+     * @return true if the caches were rebuilt
+     */
+    boolean update(Renderer renderer, TextureRegistry textures, float batchColor){
+        if(batchColor != color){
+            color = batchColor;
+            dirty = true;
+        }
+        for(int i = 0; i < statics.size && !dirty; i++){
+            Renderable cur = statics.items[i];
+            if(cur.visible != cur.cachedVisible){
+                dirty = true; // Se mostró o se ocultó, es un markStaticDirty() implícito
+            }
+        }
+
+        for(int i = 0; i < textureIds.size; i++){
+            int id = textureIds.get(i);
+            if(!textures.isLoaded(id)){
+                if(textures.isReferenced(id)) {
+                    textures.reload(id);
+                }
+                dirty = true; // Los vértices apuntan a la textura vieja
+            }
+            textures.touch(id);
+        }
+
+        if(dirty){
+            build(renderer, textures);
+            dirty = false;
+            return true;
+        }
+        return false;
+    }
+
+    private void build(Renderer renderer, TextureRegistry textures){
+        layers.clear();
+        cacheIds.clear();
+        counts.clear();
+        textureIds.clear();
+
+        if(statics.size > cacheSize){
+            if(cache != null){
+                cache.dispose();
+            }
+            cacheSize = Math.max(statics.size, cacheSize * 2);
+            cache = new SpriteCache(cacheSize, false); // Hay uno solo a la vez, así que tiene su propio shader y lo libera su dispose()
+        } else if(cache != null){
+            cache.clear();
+        }
+        cache.setColor(color);
+
+        if(statics.size == 0){
+            return;
+        }
+
+        statics.sort(DRAW_ORDER);
+        IntSet usedTextures = new IntSet();
+        boolean open = false;
+
+        for(int i = 0; i < statics.size; i++){
+            Renderable cur = statics.items[i];
+            cur.sceneIndex = i;
+            cur.cachedVisible = cur.visible;
+            if(!cur.visible){
+                continue;
+            }
+
+            TextureRegion frame = resolveFrame(renderer, textures, cur);
+            if(frame == null){
+                continue;
+            }
+
+            if(!open || layers.peek() != cur.layer){
+                if(open){
+                    cacheIds.add(cache.endCache());
+                }
+                cache.beginCache();
+                layers.add(cur.layer);
+                counts.add(0);
+                open = true;
+            }
+
+            float x = cur.x, y = cur.y, width = cur.width, height = cur.height;
+            if(cur.flipVertically){
+                y += height;
+                height *= -1;
+            }
+            if(cur.flipHorizontally){
+                x += width;
+                width *= -1;
+            }
+            cache.add(frame, x, y, width, height);
+            counts.incr(counts.size - 1, 1);
+
+            if(usedTextures.add(cur.id)){
+                textureIds.add(cur.id);
+            }
+        }
+
+        if(open){
+            cacheIds.add(cache.endCache());
+        }
+    }
+
+    private TextureRegion resolveFrame(Renderer renderer, TextureRegistry textures, Renderable renderable){
+        AnimatedTexture at = textures.get(renderable.id);
+        if(at == null){
+            if(!textures.isReferenced(renderable.id)) {
+                Gdx.app.log("ERR", "Renderer - No tengo cargada la textura \""+renderable.texturePath+"\" en el Renderer.\nLlamaste al prepareTextures()???");
+                return null;
+            }
+            at = textures.reload(renderable.id);
+        }
+
+        if(renderable.changeAnimation){
+            renderer.applyAnimation(renderable);
+        } else if(renderable.curAnimationHandle != AnimatedTexture.NO_ANIMATION){
+            renderable.curAnimation = at.getAnimation(renderable.curAnimationHandle);
+        }
+
+        if(renderable.curAnimation == null){
+            Gdx.app.log("WARN", "Renderer - El Renderable estático \""+renderable.texturePath+"\" no tiene animación. No se muestra nada!!!");
+            return null;
+        }
+        return AnimatedTexture.getKeyFrame(renderable.curAnimation, renderable.animElapsedTime, renderable.looping);
+    }
+
+    int getLayerCount(){
+        return layers.size;
+    }
+
+    int getLayer(int index){
+        return layers.get(index);
+    }
+
+    /**
+     * Draws the cache of one layer with the projection and transform of the Batch. The Batch must not be drawing.
+     * @return amount of sprites drawn
+     */
+    int draw(int index, Batch batch){
+        cache.setProjectionMatrix(batch.getProjectionMatrix());
+        cache.setTransformMatrix(batch.getTransformMatrix());
+        cache.begin();
+        cache.draw(cacheIds.get(index));
+        cache.end();
+        renderCalls += cache.renderCalls;
+        return counts.get(index);
+    }
+
+    /**
+     * @return draw calls since the last call to this method
+     */
+    int takeRenderCalls(){
+        int calls = renderCalls;
+        renderCalls = 0;
+        return calls;
+    }
+
+    @Override
+    public void dispose() {
+        if(cache != null){
+            cache.dispose();
+            cache = null;
+            cacheSize = 0;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntSet;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/**
+ * Asynchronous path of Renderer.prepareTextures().
+ *
+ * Las imágenes se decodifican (Pixmap) en un pool de threads y se suben a GL desde el render thread
+ * en update(), de a una y sin pasarse del presupuesto de tiempo por frame.
+ * Con atlas packing, cuando están todas decodificadas se empaquetan y se suben las páginas en un solo paso.
+ */
+public class TextureLoader implements Disposable {
+
+    /**
+     * Progress callbacks, always called from the render thread.
+     */
+    public interface Listener {
+        /**
+         * @param progress from 0 to 1
+         */
+        void onProgress(float progress);
+
+        /**
+         * Everything is uploaded and the animations are built, the renderables can be used.
+         */
+        void onLoaded();
+    }
+
+    /**
+     * Handle of one prepareTexturesAsync() call, can be polled instead of using the Listener.
+     */
+    public static class Task {
+        private final Array<Renderable> renderables;
+        private final Listener listener;
+        private final boolean pack;
+        private final Array<Renderable> owners;        // Un renderable por textura a cargar
+        private final Array<AsyncResult<Pixmap>> decoding;
+        private final Array<Pixmap> decoded;            // Solo con packing, esperan a que estén todas
+        private int next;                               // Próxima textura a subir (en orden)
+        private int completed;                          // Pasos hechos, ver getProgress()
+        private boolean done;
+
+        private Task(Array<Renderable> renderables, Listener listener, boolean pack) {
+            this.renderables = new Array<Renderable>(renderables);
+            this.listener = listener;
+            this.pack = pack;
+            owners = new Array<Renderable>();
+            decoding = new Array<AsyncResult<Pixmap>>();
+            decoded = new Array<Pixmap>();
+        }
+
+        /**
+         * @return from 0 to 1. Each texture counts once when it's uploaded, or with atlas packing once when it's
+         * decoded and once more when the pages are packed (decoding and packing get half each).
+         * The last step (building the animations) counts as one more texture.
+         */
+        public float getProgress(){
+            int steps = pack ? owners.size * 2 : owners.size;
+            return (float)completed / (steps + 1);
+        }
+
+        public boolean isDone(){
+            return done;
+        }
+    }
+
+    private final Renderer renderer;
+    private final AsyncExecutor executor;
+    private final Array<Task> tasks;
+
+    TextureLoader(Renderer renderer) {
+        this.renderer = renderer;
+        executor = new AsyncExecutor(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        tasks = new Array<Task>();
+    }
+
+    Task submit(Array<Renderable> renderables, Listener listener, boolean pack){
+        Task task = new Task(renderables, listener, pack);
+        IntSet seen = new IntSet();
+
+        for(final Renderable rend : renderables){
+            if(renderer.isTextureLoaded(rend.id) || !seen.add(rend.id)){
+                continue;
+            }
+
+            task.owners.add(rend);
+            final String path = rend.texturePath;
+            task.decoding.add(executor.submit(new AsyncTask<Pixmap>() {
+                @Override
+                public Pixmap call() throws Exception {
+                    return new Pixmap(Gdx.files.internal(path));
+                }
+            }));
+        }
+
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * @return true while there are tasks not done
+     */
+    boolean isBusy(){
+        return tasks.size > 0;
+    }
+
+    /**
+     * Uploads decoded textures until the budget runs out. Tasks are processed in order.
+     *
+     * @param budgetNanos tiempo máximo a usar en este frame
+     */
+    void update(long budgetNanos){
+        long start = TimeUtils.nanoTime();
+
+        while(tasks.size > 0 && TimeUtils.nanoTime() - start < budgetNanos){
+            Task task = tasks.first();
+            if(!step(task)){
+                return; // Está esperando que se decodifique algo
+            }
+
+            if(task.listener != null){
+                task.listener.onProgress(task.getProgress());
+            }
+
+            if(task.done){
+                tasks.removeIndex(0);
+                if(task.listener != null){
+                    task.listener.onLoaded();
+                }
+            }
+        }
+    }
+
+    /**
+     * Does one unit of work of the task.
+     * @return false if there was nothing to do yet
+     */
+    private boolean step(Task task){
+        if(task.next < task.owners.size){
+            AsyncResult<Pixmap> result = task.decoding.get(task.next);
+            if(!result.isDone()){
+                return false;
+            }
+
+            Renderable rend = task.owners.get(task.next);
+            Pixmap sheet = get(result, rend);
+            task.decoding.set(task.next, null);
+            task.next++;
+
+            task.completed++;
+            if(task.pack){
+                task.decoded.add(sheet); // Se empaqueta cuando estén todas (puede ser null si falló)
+            } else {
+                if(sheet != null && !renderer.isTextureLoaded(rend.id)){
+                    renderer.uploadTexture(rend, sheet);
+                } else if(sheet != null){
+                    sheet.dispose(); // La cargó otro task mientras tanto
+                }
+            }
+            return true;
+        }
+
+        if(task.pack){
+            Array<Renderable> owners = new Array<Renderable>();
+            Array<Pixmap> sheets = new Array<Pixmap>();
+            for(int i = 0; i < task.owners.size; i++){
+                if(task.decoded.get(i) != null){
+                    owners.add(task.owners.get(i));
+                    sheets.add(task.decoded.get(i));
+                }
+            }
+            task.decoded.clear();
+            renderer.packSheets(owners, sheets);
+            task.completed += task.owners.size;
+        }
+
+        renderer.prepareAnimations(task.renderables);
+        task.completed++;
+        task.done = true;
+        return true;
+    }
+
+    private Pixmap get(AsyncResult<Pixmap> result, Renderable rend){
+        try {
+            return result.get();
+        } catch (GdxRuntimeException e) {
+            Gdx.app.log("ERR", "TextureLoader - No se pudo decodificar la textura \""+rend.texturePath+"\"", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        executor.dispose(); // Espera a que terminen los que se están decodificando
+
+        for(Task task : tasks){
+            for(int i = task.next; i < task.decoding.size; i++){
+                Pixmap sheet = get(task.decoding.get(i), task.owners.get(i));
+                if(sheet != null){
+                    sheet.dispose();
+                }
+            }
+            for(Pixmap sheet : task.decoded){
+                if(sheet != null){
+                    sheet.dispose();
+                }
+            }
+        }
+        tasks.clear();
+    }
+}
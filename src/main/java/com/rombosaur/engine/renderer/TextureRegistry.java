@@ -0,0 +1,290 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Registro de todas las texturas del juego.
+ *
+ * Le da a cada texturePath un id denso (0, 1, 2...), que es el Renderable.id, y guarda por id
+ * el AnimatedTexture y las animaciones en arrays, así el Renderer no boxea ni hashea nada en el render loop.
+ *
+ * Each texture is reference counted: prepareTextures() retains it once per renderable and releaseTextures()
+ * releases it, when nobody references it anymore it's unloaded. With a memory budget (setMemoryBudget())
+ * the least recently drawn textures are evicted when the budget is exceeded, and the Renderer reloads them
+ * the next time they're drawn.
+ *
+ * The animation handles of each id are kept here too, so they're the same after the texture is evicted and reloaded.
+ *
+ * getId() and getPath() are thread safe (they can be called from loader threads). Everything else
+ * touches GL objects, so it must be called from the render thread.
+ */
+public class TextureRegistry {
+    private static class Holder {
+        static final TextureRegistry INSTANCE = new TextureRegistry();
+    }
+
+    private final ObjectIntMap<String> ids;
+    private String[] paths;
+    private int count;
+
+    // Todo indexado por id
+    private volatile AnimatedTexture[] textures;
+    private Object[] animations;          // ObjectMap<String, AnimationData>
+    private Object[] handles;             // ObjectIntMap<String>, nombre de animación -> handle. Sobrevive a los reload()
+    private int[] cols, rows;
+    private int[] refCounts;
+    private long[] sizes;
+    private long[] lastUsed;
+    private TextureAtlas[] pages;         // Página de atlas si la textura está empaquetada
+
+    private final ObjectIntMap<TextureAtlas> pageRefs; // Texturas cargadas en cada página
+    private long usedBytes;
+    private long budget;
+    private long clock;
+
+    private TextureRegistry(){
+        ids = new ObjectIntMap<String>();
+        pageRefs = new ObjectIntMap<TextureAtlas>();
+        budget = Long.MAX_VALUE;
+        allocate(32);
+    }
+
+    public static TextureRegistry getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Te da un ID único para este texturePath.
+     * Si el texturePath ya existe, te da el ID que creó antes.
+     */
+    public synchronized int getId(String texturePath){
+        int id = ids.get(texturePath, Renderable.UNINITIALIZED_ID);
+        if(id == Renderable.UNINITIALIZED_ID){
+            id = count++;
+            if(id == paths.length){
+                allocate(paths.length * 2);
+            }
+            ids.put(texturePath, id);
+            paths[id] = texturePath;
+        }
+        return id;
+    }
+
+    public synchronized String getPath(int id){
+        return paths[id];
+    }
+
+    /**
+     * @return the loaded texture, or null if it's not loaded (or it was evicted, or the id is UNINITIALIZED_ID)
+     */
+    public AnimatedTexture get(int id){
+        AnimatedTexture[] current = textures;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    public boolean isLoaded(int id){
+        return get(id) != null;
+    }
+
+    /**
+     * Registers a loaded texture.
+     *
+     * @param page the atlas page where the frames are, or null if the AnimatedTexture owns its Texture
+     */
+    public synchronized void put(int id, AnimatedTexture texture, int framesCols, int framesRows, TextureAtlas page){
+        if(textures[id] != null){
+            unload(id);
+        }
+
+        texture.setHandles(getHandles(id));
+        textures[id] = texture;
+        cols[id] = framesCols;
+        rows[id] = framesRows;
+        pages[id] = page;
+        sizes[id] = texture.getSizeInBytes();
+        lastUsed[id] = clock;
+        usedBytes += sizes[id];
+
+        if(page != null){
+            pageRefs.getAndIncrement(page, 0, 1);
+        }
+
+        enforceBudget();
+    }
+
+    /**
+     * Loads again a texture that was evicted. Its animations are rebuilt from the AnimationData it had,
+     * with the same handles.
+     *
+     * @return the reloaded texture
+     */
+    public AnimatedTexture reload(int id){
+        AnimatedTexture at = new AnimatedTexture(getPath(id), cols[id], rows[id]);
+        put(id, at, cols[id], rows[id], null);
+        ObjectMap<String, AnimationData> anims = getAnimationData(id);
+        if(anims != null){
+            at.buildAnimations(anims);
+        }
+        return at;
+    }
+
+    /**
+     * The name -> handle table of the texture, shared by every AnimatedTexture registered with this id.
+     */
+    private ObjectIntMap<String> getHandles(int id){
+        @SuppressWarnings("unchecked")
+        ObjectIntMap<String> table = (ObjectIntMap<String>) handles[id];
+        if(table == null){
+            table = new ObjectIntMap<String>();
+            handles[id] = table;
+        }
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized ObjectMap<String, AnimationData> getAnimationData(int id){
+        if(id < 0 || id >= count){
+            return null;
+        }
+        return (ObjectMap<String, AnimationData>) animations[id];
+    }
+
+    public synchronized void setAnimationData(int id, ObjectMap<String, AnimationData> anims){
+        animations[id] = anims;
+    }
+
+    public synchronized void retain(int id){
+        refCounts[id]++;
+    }
+
+    /**
+     * When the last reference is released the texture is unloaded.
+     */
+    public synchronized void release(int id){
+        if(refCounts[id] == 0){
+            Gdx.app.log("WARN", "TextureRegistry - Se liberó más veces de las que se retuvo la textura \""+paths[id]+"\"");
+            return;
+        }
+
+        refCounts[id]--;
+        if(refCounts[id] == 0){
+            unload(id);
+        }
+    }
+
+    public synchronized boolean isReferenced(int id){
+        return id >= 0 && id < count && refCounts[id] > 0;
+    }
+
+    /**
+     * Marks the texture as used in the current frame (for the LRU).
+     * Synchronized because a getId() from a loader thread can grow the arrays at the same time.
+     */
+    public synchronized void touch(int id){
+        if(id >= 0 && id < count){
+            lastUsed[id] = clock;
+        }
+    }
+
+    /**
+     * The Renderer calls this once per frame.
+     */
+    public void nextFrame(){
+        clock++;
+    }
+
+    /**
+     * Maximum amount of texture memory (estimated) before the LRU starts evicting textures.
+     * Textures drawn in the current frame and the ones packed in an atlas are never evicted.
+     */
+    public synchronized void setMemoryBudget(long bytes){
+        budget = bytes;
+        enforceBudget();
+    }
+
+    public synchronized long getUsedBytes(){
+        return usedBytes;
+    }
+
+    /**
+     * Disposes every texture. Ids, paths, animations and handles are kept.
+     */
+    public synchronized void unloadAll(){
+        for(int id = 0; id < count; id++){
+            if(textures[id] != null){
+                unload(id);
+            }
+            refCounts[id] = 0;
+        }
+    }
+
+    private void unload(int id){
+        AnimatedTexture at = textures[id];
+        if(at == null){
+            return;
+        }
+
+        at.dispose();
+        textures[id] = null;
+        usedBytes -= sizes[id];
+
+        TextureAtlas page = pages[id];
+        if(page != null){
+            pages[id] = null;
+            if(pageRefs.getAndIncrement(page, 0, -1) == 1){
+                pageRefs.remove(page, 0);
+                page.dispose();
+            }
+        }
+    }
+
+    private void enforceBudget(){
+        while(usedBytes > budget){
+            int victim = Renderable.UNINITIALIZED_ID;
+            for(int id = 0; id < count; id++){
+                if(textures[id] != null && pages[id] == null && lastUsed[id] < clock
+                        && (victim == Renderable.UNINITIALIZED_ID || lastUsed[id] < lastUsed[victim])){
+                    victim = id;
+                }
+            }
+
+            if(victim == Renderable.UNINITIALIZED_ID){
+                return; // No hay nada más para desalojar
+            }
+            unload(victim);
+        }
+    }
+
+    private void allocate(int capacity){
+        paths = grow(paths, new String[capacity]);
+        textures = grow(textures, new AnimatedTexture[capacity]);
+        animations = grow(animations, new Object[capacity]);
+        handles = grow(handles, new Object[capacity]);
+        pages = grow(pages, new TextureAtlas[capacity]);
+
+        int[] newCols = new int[capacity], newRows = new int[capacity], newRefs = new int[capacity];
+        long[] newSizes = new long[capacity], newLastUsed = new long[capacity];
+        if(cols != null){
+            System.arraycopy(cols, 0, newCols, 0, cols.length);
+            System.arraycopy(rows, 0, newRows, 0, rows.length);
+            System.arraycopy(refCounts, 0, newRefs, 0, refCounts.length);
+            System.arraycopy(sizes, 0, newSizes, 0, sizes.length);
+            System.arraycopy(lastUsed, 0, newLastUsed, 0, lastUsed.length);
+        }
+        cols = newCols;
+        rows = newRows;
+        refCounts = newRefs;
+        sizes = newSizes;
+        lastUsed = newLastUsed;
+    }
+
+    private static <T> T[] grow(T[] array, T[] result){
+        if(array != null){
+            System.arraycopy(array, 0, result, 0, array.length);
+        }
+        return result;
+    }
+}
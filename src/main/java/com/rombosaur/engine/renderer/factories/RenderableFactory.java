@@ -1,5 +1,6 @@
 package com.rombosaur.engine.renderer.factories;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Pool;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
@@ -10,17 +11,83 @@ import com.rombosaur.engine.renderer.Renderable;
  * Un factory que tiene un pool de Renderables.
  * Te devuelve el primer renderable disponible mediante el método get() y llama al método init(x,y) antes.
  *
+ * Los activos se pueden liberar de a uno con free() en O(1) (el renderable guarda su posición en poolIndex),
+ * o todos juntos con reset(). Con prewarm() durante la carga del nivel, get() no aloca nada en medio del juego.
+ *
+ * Optionally the pool has a capacity (actives + free). When it's full, get() reuses the oldest active
+ * renderable or returns null, depending on the OverflowPolicy. A reused renderable may still be in the
+ * Renderer scene and in the CollisionSystem: take it out of them in a ReuseListener (setReuseListener()).
+ *
  * Created by rombus on 29/04/17.
  */
 public class RenderableFactory<T extends Renderable> implements Pool.Poolable{
+
+    /**
+     * Creates the renderables of the pool (usually an anonymous class that calls the constructor of your class).
+     */
+    public interface Supplier<T> {
+        T create();
+    }
+
+    /**
+     * Called with the oldest active renderable when REUSE_OLDEST takes it, before it's reset and handed out again.
+     * The factory doesn't know where it was added, so remove it here from the Renderer scene, the CollisionSystem, etc.
+     */
+    public interface ReuseListener<T> {
+        void reused(T renderable);
+    }
+
+    public enum OverflowPolicy {
+        /** The oldest active renderable is reset and handed out again (see ReuseListener) */
+        REUSE_OLDEST,
+        /** get() returns null */
+        REJECT
+    }
+
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
     protected final Array<T> actives;
-    protected final Pool<T> pool;
+    protected final Array<T> free;
+    private final Supplier<T> supplier;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private ReuseListener<T> reuseListener;
 
-    public RenderableFactory(final Class type) {
+    // Lista de activos por orden de creación, enlazada por Renderable.poolOlder/poolNewer
+    private Renderable oldest, newest;
+
+    private int created;
+    private int highWaterMark;
+    private int misses;
+    private int rejected;
+
+    public RenderableFactory(Supplier<T> supplier) {
+        this(supplier, UNBOUNDED, OverflowPolicy.REJECT);
+    }
+
+    /**
+     * @param capacity maximum amount of renderables this factory creates (actives + free)
+     * @param overflowPolicy what get() does when the pool is full
+     */
+    public RenderableFactory(Supplier<T> supplier, int capacity, OverflowPolicy overflowPolicy) {
+        this.supplier = supplier;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
         actives = new Array<T>();
-        pool = new Pool<T>() {
+        free = new Array<T>();
+    }
+
+    /**
+     * Creates the renderables by reflection (needs a no-arg constructor).
+     *
+     * @deprecated reflection is slow and doesn't play well with every platform, use the Supplier constructor.
+     */
+    @Deprecated
+    public RenderableFactory(final Class type) {
+        this(new Supplier<T>() {
             @Override
-            protected T newObject() {
+            @SuppressWarnings("unchecked")
+            public T create() {
                 try {
                     return (T)ClassReflection.newInstance(type);
                 } catch (ReflectionException e) {
@@ -28,21 +95,179 @@ public class RenderableFactory<T extends Renderable> implements Pool.Poolable{
                 }
                 return null;
             }
-        };
+        });
+    }
+
+    /**
+     * @param listener called when REUSE_OLDEST takes an active renderable, null for none
+     */
+    public void setReuseListener(ReuseListener<T> listener){
+        this.reuseListener = listener;
     }
 
+    /**
+     * Creates renderables until the pool has "count" of them (actives + free), without going over the capacity.
+     * Call it while loading, so get() doesn't allocate later.
+     */
+    public void prewarm(int count){
+        count = Math.min(count, capacity);
+        while(created < count){
+            T obj = supplier.create();
+            obj.poolIndex = Renderable.UNINITIALIZED_ID;
+            created++;
+            free.add(obj);
+        }
+    }
+
+    /**
+     * @return an initialized renderable, or null if the pool is full and the policy is REJECT
+     */
     public T get(float x, float y){
-        T obj = pool.obtain();
+        T obj;
+        if(free.size > 0){
+            obj = free.pop();
+        } else {
+            misses++;
+            if(created < capacity){
+                obj = supplier.create();
+                created++;
+            } else if(overflowPolicy == OverflowPolicy.REUSE_OLDEST && oldest != null){
+                obj = reuseOldest();
+            } else {
+                rejected++;
+                return null;
+            }
+        }
+
         obj.init(x, y);
+        obj.poolIndex = actives.size;
         actives.add(obj);
+        link(obj);
 
+        if(actives.size > highWaterMark){
+            highWaterMark = actives.size;
+        }
         return obj;
     }
 
+    /**
+     * Returns the renderable to the pool in O(1) (the last active one takes its place).
+     * Remember to take it out of the scene too.
+     */
+    public void free(T obj){
+        int index = obj.poolIndex;
+        if(index < 0 || index >= actives.size || actives.get(index) != obj){
+            Gdx.app.log("WARN", "RenderableFactory - Se intentó liberar un renderable que no está activo en este factory.");
+            return;
+        }
+
+        removeActive(obj);
+        obj.reset();
+        free.add(obj);
+    }
+
+    /**
+     * Frees every active renderable.
+     */
     @Override
     public void reset() {
-        pool.freeAll(actives);
+        for(int i = 0; i < actives.size; i++){
+            T obj = actives.get(i);
+            obj.poolIndex = Renderable.UNINITIALIZED_ID;
+            obj.poolOlder = null;
+            obj.poolNewer = null;
+            obj.reset();
+            free.add(obj);
+        }
         actives.clear();
+        oldest = null;
+        newest = null;
+    }
+
+    public Array<T> getActives(){
+        return actives;
+    }
+
+    public int getActiveCount(){
+        return actives.size;
+    }
+
+    public int getFreeCount(){
+        return free.size;
+    }
+
+    /**
+     * @return the most renderables that were active at the same time
+     */
+    public int getHighWaterMark(){
+        return highWaterMark;
+    }
+
+    /**
+     * @return how many times get() didn't find a free renderable (it allocated, reused the oldest or rejected)
+     */
+    public int getMisses(){
+        return misses;
     }
-}
 
+    /**
+     * @return how many times get() returned null because the pool was full
+     */
+    public int getRejected(){
+        return rejected;
+    }
+
+    public void resetStats(){
+        highWaterMark = actives.size;
+        misses = 0;
+        rejected = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T reuseOldest(){
+        T obj = (T)oldest;
+        removeActive(obj);
+        if(reuseListener != null){
+            reuseListener.reused(obj);
+        }
+        obj.reset();
+        return obj;
+    }
+
+    private void removeActive(T obj){
+        int index = obj.poolIndex;
+        T last = actives.pop();
+        if(last != obj){
+            actives.set(index, last);
+            last.poolIndex = index;
+        }
+        obj.poolIndex = Renderable.UNINITIALIZED_ID;
+        unlink(obj);
+    }
+
+    private void link(Renderable obj){
+        obj.poolOlder = newest;
+        obj.poolNewer = null;
+        if(newest != null){
+            newest.poolNewer = obj;
+        } else {
+            oldest = obj;
+        }
+        newest = obj;
+    }
+
+    private void unlink(Renderable obj){
+        if(obj.poolOlder != null){
+            obj.poolOlder.poolNewer = obj.poolNewer;
+        } else {
+            oldest = obj.poolNewer;
+        }
+        if(obj.poolNewer != null){
+            obj.poolNewer.poolOlder = obj.poolOlder;
+        } else {
+            newest = obj.poolOlder;
+        }
+        obj.poolOlder = null;
+        obj.poolNewer = null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.rombosaur.engine.screens;
+
+import com.badlogic.gdx.Screen;
+
+/**
+ * A Screen with game logic that runs at a fixed rate (see Game.setFixedTimestep()).
+ * Move things in fixedUpdate() and leave render() for drawing: the Renderer interpolates the
+ * positions between steps, so the logic rate doesn't depend on the frame rate.
+ */
+public interface FixedStepScreen extends Screen {
+    /**
+     * Called zero or more times per frame, always with the same delta.
+     *
+     * @param delta duration of the step in seconds (1 / ticks per second)
+     */
+    void fixedUpdate(float delta);
+}
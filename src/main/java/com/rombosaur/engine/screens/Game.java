@@ -9,17 +9,27 @@ import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.rombosaur.engine.collision.CollisionSystem;
+import com.rombosaur.engine.metrics.FrameMetrics;
+import com.rombosaur.engine.metrics.FrameMetrics.Metric;
 import com.rombosaur.engine.renderer.Renderer;
 
 
 /**
  * Game base class.
  * Has the basic stuff for a game:
- *   Camera, Viewport, Stage, InputMultiplexer, SpriteBatch and Renderer.
+ *   Camera, Viewport, Stage, InputMultiplexer, SpriteBatch, Renderer and CollisionSystem.
  *
  * It also owns the ScreenManager, which contains the screen stack.
+ *
+ * By default the logic runs once per frame (variable timestep). With setFixedTimestep() the logic runs in
+ * fixed steps (see FixedStepScreen) and the Renderer interpolates the positions between steps.
+ *
+ * While an overlay is on top (pushOverlay()) the screen under it is not updated: it's drawn from a FrameBuffer
+ * captured when the overlay was pushed (or every refresh interval).
  */
 public abstract class Game extends com.badlogic.gdx.Game {
 	public static Game game;
@@ -33,6 +43,21 @@ public abstract class Game extends com.badlogic.gdx.Game {
 	protected OrthographicCamera camera;
 	protected Stage stage;
 	protected Renderer renderer;
+	protected CollisionSystem collisions;
+
+	private float step;             // Segundos por tick, 0 = paso variable
+	private float accumulator;
+	private float maxFrameTime;     // Clamp contra el spiral of death
+
+	private OverlayBackground overlayBackground;   // Se crea con el primer overlay
+	private UiCache uiCache;                        // null = el Stage se dibuja en cada frame
+
+	// Render no continuo cuando no cambia nada (setIdleRendering())
+	private static final int IDLE_FRAMES = 2;      // Frames iguales antes de dejar de dibujar (double buffering)
+	private boolean idleRendering;
+	private InputActivity inputActivity;
+	private int idleFrames;
+	private volatile boolean renderRequested;
 
 	/**
 	 *
@@ -45,6 +70,86 @@ public abstract class Game extends com.badlogic.gdx.Game {
 		this.width = width;
 		this.height = height;
 		this.firstScreen = firstScreen;
+		this.maxFrameTime = 0.25f;
+	}
+
+	/**
+	 * Runs the logic in fixed steps instead of once per frame.
+	 *
+	 * @param ticksPerSecond logic rate (30, 60...). 0 goes back to the variable timestep.
+	 */
+	public void setFixedTimestep(float ticksPerSecond){
+		step = ticksPerSecond > 0 ? 1f / ticksPerSecond : 0;
+		accumulator = 0;
+	}
+
+	/**
+	 * Longest frame time the fixed timestep tries to catch up with. If a frame takes longer the rest
+	 * is dropped (the game slows down) instead of running more and more steps per frame (spiral of death).
+	 */
+	public void setMaxFrameTime(float seconds){
+		maxFrameTime = seconds;
+	}
+
+	/**
+	 * Draws the Stage into a FrameBuffer only when it changes and the rest of the frames as a single quad.
+	 * Input events and actions invalidate it by themselves. Widgets must call invalidateUi() on show(), hide()
+	 * and whenever they change how they look. Call it after create().
+	 */
+	public void setUiCaching(boolean enabled){
+		if(enabled && uiCache == null){
+			uiCache = new UiCache();
+			inputMultiplexer.addProcessor(0, uiCache);
+		} else if(!enabled && uiCache != null){
+			inputMultiplexer.removeProcessor(uiCache);
+			uiCache.dispose();
+			uiCache = null;
+		}
+	}
+
+	/**
+	 * The cached Stage is drawn again in the next frame. Does nothing without setUiCaching().
+	 */
+	public void invalidateUi(){
+		if(uiCache != null){
+			uiCache.invalidate();
+		}
+	}
+
+	/**
+	 * Stops rendering continuously while nothing changes: after a couple of frames where the Renderer drew the
+	 * same thing (see Renderer.setIdleDetection()), there was no input, no Stage actions and no requestRender(),
+	 * libgdx switches to non-continuous rendering. Input events, scene changes and requestRender() bring a frame
+	 * back, and the first one that's different goes back to continuous rendering.
+	 *
+	 * Screens that draw by themselves (not with the Renderer nor the Stage) or have logic that runs on time
+	 * must call requestRender() while they need frames. Call it after create().
+	 */
+	public void setIdleRendering(boolean enabled){
+		idleRendering = enabled;
+		renderer.setIdleDetection(enabled);
+		idleFrames = 0;
+		if(enabled && inputActivity == null){
+			inputActivity = new InputActivity();
+			inputMultiplexer.addProcessor(0, inputActivity);
+		} else if(!enabled && inputActivity != null){
+			inputMultiplexer.removeProcessor(inputActivity);
+			inputActivity = null;
+		}
+		if(!enabled){
+			Gdx.graphics.setContinuousRendering(true);
+		}
+	}
+
+	/**
+	 * Something changed outside of the render loop (a timer, the network...): the next frame is drawn and
+	 * counts as a change. Can be called from any thread. Does nothing without setIdleRendering().
+	 */
+	public void requestRender(){
+		if(idleRendering){
+			renderRequested = true;
+			Gdx.graphics.requestRendering();
+		}
 	}
 
 	public void create () {
@@ -55,8 +160,10 @@ public abstract class Game extends com.badlogic.gdx.Game {
         screenManager = new ScreenManager(this);
         batch = new SpriteBatch();
 		renderer = new Renderer(batch);
+		collisions = new CollisionSystem(64);
 		camera = new OrthographicCamera(width, height);
 		camera.setToOrtho(false);
+		renderer.setCamera(camera);
 		viewport = new StretchViewport(width, height, camera);
 		stage = new Stage(viewport, batch);
 		inputMultiplexer.addProcessor(stage);
@@ -66,28 +173,159 @@ public abstract class Game extends com.badlogic.gdx.Game {
 
 	@Override
 	public void render () {
+		FrameMetrics metrics = renderer.getMetrics();
+		metrics.beginFrame();
+
 		Gdx.gl.glClearColor(0, 0, 0, 1);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
 		batch.setProjectionMatrix(camera.combined);
 		stage.getBatch().setProjectionMatrix(camera.combined);
-		renderer.update();
-		renderer.render();
+
+		long start = TimeUtils.nanoTime();
+		long updateTime = 0;
+		Screen covered = screenManager.getBackgroundScreen();
+		if(covered != null){
+			// Overlay: la screen de abajo está congelada en una textura
+			drawOverlayBackground(covered, screenManager.getBackgroundRefreshInterval());
+			accumulator = 0; // Al volver no se recupera el tiempo que estuvo tapada
+			metrics.add(Metric.RENDER_NANOS, TimeUtils.nanoTime() - start);
+		} else {
+			renderer.update();
+			float alpha = 1;
+			if(step > 0){
+				if(idleRendering && !Gdx.graphics.isContinuousRendering()){
+					accumulator += step; // Frame suelto después de estar quieto: un solo paso, no se recupera el tiempo quieto
+				} else {
+					accumulator += Math.min(Gdx.graphics.getDeltaTime(), maxFrameTime);
+				}
+				while(accumulator >= step){
+					renderer.tick(step);
+					fixedUpdate(step);
+					collisions.update();
+					accumulator -= step;
+				}
+				alpha = accumulator / step;
+			} else {
+				collisions.update(); // Antes del render, que es el que sincroniza prevX/prevY
+			}
+			updateTime = TimeUtils.nanoTime() - start;
+
+			start = TimeUtils.nanoTime();
+			if(step > 0) {
+				renderer.render(alpha);
+			} else {
+				renderer.render();
+			}
+			metrics.add(Metric.RENDER_NANOS, TimeUtils.nanoTime() - start);
+		}
+
+		start = TimeUtils.nanoTime();
 		super.render();
+		metrics.add(Metric.SCREEN_NANOS, TimeUtils.nanoTime() - start);
+
+		start = TimeUtils.nanoTime();
+		if(uiCache != null){
+			uiCache.act(stage);
+		} else {
+			stage.act();
+		}
+		metrics.add(Metric.UPDATE_NANOS, updateTime + TimeUtils.nanoTime() - start);
 
-		stage.act();
-		stage.draw();
+		start = TimeUtils.nanoTime();
+		if(uiCache != null){
+			uiCache.draw(stage, batch, viewport);
+		} else {
+			stage.draw();
+		}
+		metrics.add(Metric.STAGE_NANOS, TimeUtils.nanoTime() - start);
+
+		if(idleRendering){
+			updateIdle(covered);
+		}
+
+		metrics.endFrame();
+	}
+
+	/**
+	 * Switches between continuous and non-continuous rendering depending on whether this frame changed anything.
+	 */
+	private void updateIdle(Screen covered){
+		boolean input = inputActivity.takeActive();
+		boolean requested = renderRequested;
+		renderRequested = false;
+
+		boolean sceneIdle = covered != null ? screenManager.getBackgroundRefreshInterval() == 0 : renderer.isIdle();
+		boolean idle = sceneIdle && !input && !requested
+				&& !UiCache.hasActions(stage.getRoot()) && !screenManager.isRestoring();
+
+		if(idle){
+			idleFrames++;
+			if(idleFrames >= IDLE_FRAMES && Gdx.graphics.isContinuousRendering()){
+				Gdx.graphics.setContinuousRendering(false);
+			}
+		} else {
+			idleFrames = 0;
+			if(!Gdx.graphics.isContinuousRendering()){
+				Gdx.graphics.setContinuousRendering(true);
+			}
+		}
+	}
+
+	/**
+	 * Draws the capture of the screen under the overlay, capturing it again first if it's invalid or the
+	 * refresh interval passed. A refresh advances the scene (and the covered screen) all the time since the
+	 * previous capture in one step.
+	 */
+	private void drawOverlayBackground(Screen covered, float refreshInterval){
+		if(overlayBackground == null){
+			overlayBackground = new OverlayBackground();
+		}
+
+		if(overlayBackground.needsCapture(Gdx.graphics.getDeltaTime(), refreshInterval)){
+			float elapsed = overlayBackground.begin(viewport.getScreenWidth(), viewport.getScreenHeight());
+			renderer.update();
+			renderer.renderDelta(elapsed); // Sin tick(): dibuja en el mismo tiempo al que avanza
+			covered.render(elapsed);
+			overlayBackground.end();
+			viewport.apply(); // El FrameBuffer pisó el glViewport
+		}
+
+		overlayBackground.draw(batch);
+		batch.setProjectionMatrix(camera.combined);
+	}
+
+	/**
+	 * One fixed step of the logic. By default it forwards to the current screen if it's a FixedStepScreen.
+	 */
+	protected void fixedUpdate(float delta){
+		if(screen instanceof FixedStepScreen){
+			((FixedStepScreen) screen).fixedUpdate(delta);
+		}
 	}
 
 	@Override
 	public void resize(int width, int height) {
 		super.resize(width, height);
 		viewport.update(width, height);
+		if(overlayBackground != null){
+			overlayBackground.invalidate();
+		}
+		invalidateUi();
+		requestRender();
 	}
 
 	/* ScreenManager forwards */
     public void pushScreen(Screen screen){ screenManager.pushScreen(screen); }
 
+    public void pushScreen(Screen screen, ScreenManager.Policy policy){ screenManager.pushScreen(screen, policy); }
+
+    public void pushScreen(ScreenManager.ScreenFactory factory, ScreenManager.Policy policy){ screenManager.pushScreen(factory, policy); }
+
+    public void pushOverlay(Screen overlay){ screenManager.pushOverlay(overlay); }
+
+    public void pushOverlay(Screen overlay, float refreshInterval){ screenManager.pushOverlay(overlay, refreshInterval); }
+
     public Screen popScreen(){ return screenManager.popScreen(); }
 	/* --------------------- */
 
@@ -96,7 +334,14 @@ public abstract class Game extends com.badlogic.gdx.Game {
      * Ideally only the ScreenManager can use it.
      * @param screen
      */
-    /*pkg protected*/ void switchScreen(Screen screen) { super.setScreen(screen); }
+    /*pkg protected*/ void switchScreen(Screen screen) {
+        requestRender();
+        if(overlayBackground != null){
+            overlayBackground.invalidate(); // Cambió lo que hay abajo del overlay
+        }
+        invalidateUi();
+        super.setScreen(screen);
+    }
 
     /**
      * Calls to this method are forbidden
@@ -107,6 +352,13 @@ public abstract class Game extends com.badlogic.gdx.Game {
 		throw new GdxRuntimeException(new Error("Don't use setScreen()!!! you must use pushScreen(Screen screen) or popScreen()"));
 	}
 
+	/**
+	 * Screen policies, memory budget and restore state of the screen stack.
+	 */
+	public ScreenManager getScreenManager(){
+		return screenManager;
+	}
+
 	public Camera getCamera(){
 		return camera;
 	}
@@ -115,8 +367,28 @@ public abstract class Game extends com.badlogic.gdx.Game {
 		return this.renderer;
 	}
 
+	/**
+	 * Per-frame metrics of the engine. To see them on screen add a StatsOverlay to the stage.
+	 */
+	public FrameMetrics getMetrics(){
+		return renderer.getMetrics();
+	}
+
+	/**
+	 * The colliding pairs of the current frame are in getCollisions().getPairs().
+	 */
+	public CollisionSystem getCollisions(){
+		return this.collisions;
+	}
+
 	@Override
 	public void dispose () {
 		batch.dispose();
+		if(overlayBackground != null){
+			overlayBackground.dispose();
+		}
+		if(uiCache != null){
+			uiCache.dispose();
+		}
 	}
 }
@@ -0,0 +1,75 @@
+package com.rombosaur.engine.screens;
+
+import com.badlogic.gdx.InputAdapter;
+
+/**
+ * InputProcessor that only notices that there was input, it never handles the events.
+ * Goes first in the InputMultiplexer.
+ */
+class InputActivity extends InputAdapter {
+    private boolean active;
+
+    /**
+     * Any input event.
+     */
+    protected void onInput(){
+        active = true;
+    }
+
+    /**
+     * @return true if there was input since the last call
+     */
+    boolean takeActive(){
+        boolean result = active;
+        active = false;
+        return result;
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        onInput();
+        return false;
+    }
+
+    @Override
+    public boolean keyUp(int keycode) {
+        onInput();
+        return false;
+    }
+
+    @Override
+    public boolean keyTyped(char character) {
+        onInput();
+        return false;
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        onInput();
+        return false;
+    }
+
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        onInput();
+        return false;
+    }
+
+    @Override
+    public boolean touchDragged(int screenX, int screenY, int pointer) {
+        onInput();
+        return false;
+    }
+
+    @Override
+    public boolean mouseMoved(int screenX, int screenY) {
+        onInput();
+        return false;
+    }
+
+    @Override
+    public boolean scrolled(int amount) {
+        onInput();
+        return false;
+    }
+}
@@ -0,0 +1,25 @@
+package com.rombosaur.engine.screens;
+
+import com.badlogic.gdx.Screen;
+import com.rombosaur.engine.renderer.TextureLoader;
+
+/**
+ * A Screen that can be hibernated by the ScreenManager while it's covered by other screens:
+ * it gives back its GPU resources but keeps its state (positions, score, menus...).
+ * See ScreenManager.Policy.HIBERNATE and ScreenManager.setMemoryBudget().
+ */
+public interface ManagedScreen extends Screen {
+    /**
+     * Release the textures (Renderer.releaseTextures()), framebuffers, etc. Keep everything else.
+     * Called after hide().
+     */
+    void hibernate();
+
+    /**
+     * Start loading again what hibernate() released, without blocking (Renderer.prepareTexturesAsync()).
+     * Called before show(), the screen must not draw the renderables of those textures until the task is done.
+     *
+     * @return the loading task, or null if everything is already loaded
+     */
+    TextureLoader.Task restore();
+}
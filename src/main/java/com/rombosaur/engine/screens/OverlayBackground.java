@@ -0,0 +1,93 @@
+package com.rombosaur.engine.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * The screen under an overlay (ScreenManager.pushOverlay()), captured in a FrameBuffer and drawn as a single quad.
+ * Game captures it when the overlay is pushed and then only every refresh interval (if any).
+ */
+class OverlayBackground implements Disposable {
+    private FrameBuffer fbo;
+    private TextureRegion region;
+    private final Matrix4 projection;
+    private boolean valid;
+    private float sinceCapture;
+
+    OverlayBackground() {
+        projection = new Matrix4().setToOrtho2D(0, 0, 1, 1); // El quad ocupa todo el viewport
+    }
+
+    /**
+     * @param refreshInterval seconds between captures, 0 = only once
+     * @return true if it has to be captured again in this frame
+     */
+    boolean needsCapture(float delta, float refreshInterval){
+        sinceCapture += delta;
+        return !valid || (refreshInterval > 0 && sinceCapture >= refreshInterval);
+    }
+
+    /**
+     * Starts drawing into the FrameBuffer (it's recreated if the size changed). Call end() when done.
+     *
+     * @return seconds since the previous capture (0 for the first one)
+     */
+    float begin(int width, int height){
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+        if(fbo == null || fbo.getWidth() != width || fbo.getHeight() != height){
+            if(fbo != null){
+                fbo.dispose();
+            }
+            fbo = new FrameBuffer(Pixmap.Format.RGB888, width, height, false);
+            region = new TextureRegion(fbo.getColorBufferTexture());
+            region.flip(false, true);
+        }
+
+        float elapsed = valid ? sinceCapture : 0;
+        valid = true;
+        sinceCapture = 0;
+
+        fbo.begin();
+        Gdx.gl.glClearColor(0, 0, 0, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        return elapsed;
+    }
+
+    void end(){
+        fbo.end();
+    }
+
+    /**
+     * Draws the capture over the whole viewport. The Batch must not be drawing.
+     */
+    void draw(Batch batch){
+        batch.setProjectionMatrix(projection);
+        batch.begin();
+        batch.draw(region, 0, 0, 1, 1);
+        batch.end();
+    }
+
+    /**
+     * The next frame captures again (the screens changed).
+     */
+    void invalidate(){
+        valid = false;
+    }
+
+    @Override
+    public void dispose() {
+        if(fbo != null){
+            fbo.dispose();
+            fbo = null;
+            region = null;
+        }
+        valid = false;
+    }
+}
@@ -2,33 +2,153 @@ package com.rombosaur.engine.screens;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.rombosaur.engine.renderer.TextureLoader;
+import com.rombosaur.engine.renderer.TextureRegistry;
 
 /**
  * Manages the screen stack.
  *
+ * Each pushed screen has a Policy that says what happens with the screen that gets covered by it:
+ * it stays live, it's hibernated (ManagedScreen, textures released and state kept) or it's disposed and
+ * created again from its ScreenFactory when it's popped back. With setMemoryBudget() the live covered
+ * screens are hibernated too, the oldest first, while the loaded textures go over the budget.
+ * Popping back to a hibernated screen reloads its textures asynchronously (see isRestoring()).
+ *
+ * Overlays (pushOverlay()) are drawn over the screen they cover, which is captured once into a FrameBuffer
+ * and shown as a single quad instead of being updated and rendered every frame (see Game).
+ *
  * Created by rombus on 02/03/17.
  */
 public class ScreenManager {
+
+    /**
+     * What happens with a screen while other screens are on top of it.
+     */
+    public enum Policy {
+        /** Keeps everything loaded (it can still be hibernated by the memory budget if it's a ManagedScreen) */
+        LIVE,
+        /** ManagedScreen.hibernate() when covered, ManagedScreen.restore() when it's back on top */
+        HIBERNATE,
+        /** dispose() when covered, created again from its ScreenFactory when it's back on top */
+        DISPOSE
+    }
+
+    /**
+     * Creates a screen, for the screens pushed with Policy.DISPOSE.
+     */
+    public interface ScreenFactory {
+        Screen create();
+    }
+
+    private static class Entry {
+        Screen screen;              // null mientras está disposed
+        final ScreenFactory factory;
+        final Policy policy;
+        boolean hibernated;
+        boolean overlay;
+        float refreshInterval;      // Solo overlays, 0 = la de abajo no se refresca
+
+        Entry(Screen screen, ScreenFactory factory, Policy policy) {
+            this.screen = screen;
+            this.factory = factory;
+            this.policy = policy;
+        }
+    }
+
     private Game game;
-    private Stack<Screen> screenStack;
+    private Stack<Entry> screenStack;
+    private Entry curEntry;
     private Screen curScreen;
 
+    private long memoryBudget;
+    private TextureLoader.Task restoring;
+
     public ScreenManager(Game game){
         this.game = game;
-        screenStack = new Stack<Screen>();
+        screenStack = new Stack<Entry>();
+        memoryBudget = Long.MAX_VALUE;
     }
 
     /**
-     * Switchs to the specified screen
+     * Switchs to the specified screen. The previous one stays live.
      *
      * @param screen Screen to switch to
      */
     public void pushScreen(Screen screen) {
-        if(curScreen != null) {
-            screenStack.push(curScreen);
+        pushScreen(screen, Policy.LIVE);
+    }
+
+    /**
+     * Switchs to the specified screen.
+     *
+     * @param screen Screen to switch to
+     * @param policy what to do with it when another screen is pushed over it. HIBERNATE needs a ManagedScreen
+     *               and DISPOSE a factory, use pushScreen(ScreenFactory, Policy) for that one.
+     */
+    public void pushScreen(Screen screen, Policy policy) {
+        if(policy == Policy.DISPOSE){
+            throw new RuntimeException("ScreenManager - Para Policy.DISPOSE usá pushScreen(ScreenFactory, Policy)");
+        }
+        if(policy == Policy.HIBERNATE && !(screen instanceof ManagedScreen)){
+            Gdx.app.log("WARN", "ScreenManager - La screen "+screen.getClass().getSimpleName()+" no es un ManagedScreen, no se puede hibernar. Queda LIVE.");
+            policy = Policy.LIVE;
+        }
+        push(new Entry(screen, null, policy));
+    }
+
+    /**
+     * Creates the screen with the factory and switchs to it. With Policy.DISPOSE the factory is used again
+     * to recreate the screen when it's back on top.
+     */
+    public void pushScreen(ScreenFactory factory, Policy policy) {
+        Screen screen = factory.create();
+        if(policy == Policy.HIBERNATE && !(screen instanceof ManagedScreen)){
+            Gdx.app.log("WARN", "ScreenManager - La screen "+screen.getClass().getSimpleName()+" no es un ManagedScreen, no se puede hibernar. Queda LIVE.");
+            policy = Policy.LIVE;
         }
-        curScreen = screen;
-        game.switchScreen(screen);
+        push(new Entry(screen, factory, policy));
+    }
+
+    /**
+     * Shows the screen over the current one (pause, inventory...). The covered screen is captured once and drawn
+     * as a single quad, it's not updated nor rendered again until the overlay is popped. Its Policy is not
+     * applied, it's still needed to be shown when the overlay goes away.
+     * The Renderer scene is only drawn into that capture, so the overlay draws itself in render() or with the Stage.
+     */
+    public void pushOverlay(Screen overlay) {
+        pushOverlay(overlay, 0);
+    }
+
+    /**
+     * @param refreshInterval every this many seconds the covered screen is rendered again (a live but cheap
+     *                        background), 0 to capture it only once
+     */
+    public void pushOverlay(Screen overlay, float refreshInterval) {
+        Entry entry = new Entry(overlay, null, Policy.LIVE);
+        entry.overlay = true;
+        entry.refreshInterval = Math.max(refreshInterval, 0);
+        push(entry);
+    }
+
+    private void push(Entry entry){
+        Entry covered = curEntry;
+        if(covered != null) {
+            screenStack.push(covered);
+        }
+        curEntry = entry;
+        curScreen = entry.screen;
+        restoring = null;
+        game.switchScreen(curScreen); // hide() de la anterior, show() de la nueva
+
+        if(covered != null && !entry.overlay){
+            if(covered.policy == Policy.HIBERNATE){
+                hibernate(covered);
+            } else if(covered.policy == Policy.DISPOSE){
+                covered.screen.dispose();
+                covered.screen = null;
+            }
+        }
+        enforceBudget();
     }
 
     /**
@@ -38,12 +158,92 @@ public class ScreenManager {
      */
     public Screen popScreen(){
         if(!screenStack.isEmpty()){
-            curScreen = screenStack.pop();
+            curEntry = screenStack.pop();
+            restoring = null;
+            if(curEntry.screen == null){
+                curEntry.screen = curEntry.factory.create();
+            } else if(curEntry.hibernated){
+                curEntry.hibernated = false;
+                restoring = ((ManagedScreen) curEntry.screen).restore();
+            }
+            curScreen = curEntry.screen;
             game.switchScreen(curScreen);
+            enforceBudget();
         } else {
             Gdx.app.log("DEBUG", "Empty screen stack!!!");
         }
 
         return curScreen;
     }
+
+    /**
+     * Maximum texture memory (TextureRegistry.getUsedBytes()) while there are covered screens.
+     * When it's exceeded the covered LIVE ManagedScreen's are hibernated, from the bottom of the stack up,
+     * until the memory goes under the budget or there's nothing else to hibernate.
+     */
+    public void setMemoryBudget(long bytes){
+        memoryBudget = bytes;
+        enforceBudget();
+    }
+
+    /**
+     * @return true while the current screen is reloading the textures it released when it was hibernated
+     */
+    public boolean isRestoring(){
+        return restoring != null && !restoring.isDone();
+    }
+
+    /**
+     * @return the restore task of the current screen, or null if it wasn't hibernated
+     */
+    public TextureLoader.Task getRestoreTask(){
+        return restoring;
+    }
+
+    public Screen getCurrentScreen(){
+        return curScreen;
+    }
+
+    /**
+     * @return screens below the current one
+     */
+    public int getStackSize(){
+        return screenStack.size();
+    }
+
+    /**
+     * @return the screen under the current one if the current one is an overlay, null otherwise
+     */
+    public Screen getBackgroundScreen(){
+        if(curEntry == null || !curEntry.overlay || screenStack.isEmpty()){
+            return null;
+        }
+        return screenStack.peek().screen;
+    }
+
+    /**
+     * @return seconds between refreshes of the background of the current overlay, 0 if it's not refreshed
+     */
+    public float getBackgroundRefreshInterval(){
+        return curEntry != null && curEntry.overlay ? curEntry.refreshInterval : 0;
+    }
+
+    private void enforceBudget(){
+        TextureRegistry textures = TextureRegistry.getInstance();
+        int count = screenStack.size();
+        if(curEntry != null && curEntry.overlay){
+            count--; // La de abajo del overlay se sigue mostrando
+        }
+        for(int i = 0; i < count && textures.getUsedBytes() > memoryBudget; i++){
+            Entry entry = screenStack.get(i);
+            if(entry.policy == Policy.LIVE && !entry.hibernated && entry.screen instanceof ManagedScreen){
+                hibernate(entry);
+            }
+        }
+    }
+
+    private void hibernate(Entry entry){
+        ((ManagedScreen) entry.screen).hibernate();
+        entry.hibernated = true;
+    }
 }
@@ -21,6 +21,21 @@ public class Stack<T> {
         return elements.removeIndex(elements.size - 1);
     }
 
+    public T peek(){
+        return elements.peek();
+    }
+
+    /**
+     * @param index 0 is the bottom of the stack
+     */
+    public T get(int index){
+        return elements.get(index);
+    }
+
+    public int size(){
+        return elements.size;
+    }
+
     public boolean isEmpty(){
         return (elements.size > 0)? false:true;
     }
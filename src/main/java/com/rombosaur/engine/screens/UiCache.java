@@ -0,0 +1,131 @@
+package com.rombosaur.engine.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.viewport.Viewport;
+
+/**
+ * Caché del Stage en un FrameBuffer (Game.setUiCaching()).
+ *
+ * The Stage is drawn into the FrameBuffer only when something changed, the rest of the frames it's a single quad.
+ * It's invalidated by invalidate() (widgets call Game.invalidateUi() on show()/hide() or when they change),
+ * by any input event, while any actor has actions (and the frame after they end) and when actors are added
+ * or removed from the root.
+ *
+ * It's also an InputProcessor that goes before the Stage in the InputMultiplexer, it never handles the events.
+ */
+class UiCache extends InputActivity implements Disposable {
+    private FrameBuffer fbo;
+    private TextureRegion region;
+    private final Matrix4 projection;
+    private boolean dirty;
+    private boolean hadActions;
+    private int rootChildren;
+
+    UiCache() {
+        projection = new Matrix4().setToOrtho2D(0, 0, 1, 1);
+        dirty = true;
+    }
+
+    void invalidate(){
+        dirty = true;
+    }
+
+    /**
+     * stage.act() and the checks that need the actors.
+     */
+    void act(Stage stage){
+        stage.act();
+
+        Group root = stage.getRoot();
+        boolean hasActions = hasActions(root);
+        if(hasActions || hadActions || root.getChildren().size != rootChildren){
+            dirty = true;
+        }
+        hadActions = hasActions;
+        rootChildren = root.getChildren().size;
+    }
+
+    /**
+     * Draws the cached Stage, drawing it again into the FrameBuffer first if it's dirty. The Batch must not be drawing.
+     */
+    void draw(Stage stage, Batch batch, Viewport viewport){
+        int width = Math.max(viewport.getScreenWidth(), 1);
+        int height = Math.max(viewport.getScreenHeight(), 1);
+        if(fbo == null || fbo.getWidth() != width || fbo.getHeight() != height){
+            if(fbo != null){
+                fbo.dispose();
+            }
+            fbo = new FrameBuffer(Pixmap.Format.RGBA8888, width, height, false);
+            region = new TextureRegion(fbo.getColorBufferTexture());
+            region.flip(false, true);
+            dirty = true;
+        }
+
+        if(dirty){
+            fbo.begin();
+            Gdx.gl.glClearColor(0, 0, 0, 0);
+            Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+            stage.draw();
+            fbo.end();
+            viewport.apply(); // El FrameBuffer pisó el glViewport
+            dirty = false;
+        }
+
+        // Los colores del FrameBuffer ya están multiplicados por su alpha
+        // (los pixels semitransparentes sobre transparente quedan un poco más transparentes que sin caché)
+        batch.setProjectionMatrix(projection);
+        batch.setBlendFunction(GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        batch.begin();
+        batch.draw(region, 0, 0, 1, 1);
+        batch.end();
+        batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * @return true if the actor or any of its children has actions running
+     */
+    static boolean hasActions(Actor actor){
+        if(actor.getActions().size > 0){
+            return true;
+        }
+        if(actor instanceof Group){
+            SnapshotArray<Actor> children = ((Group) actor).getChildren();
+            for(int i = 0; i < children.size; i++){
+                if(hasActions(children.get(i))){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cualquier input puede cambiar algo (hover, botones apretados, texto...)
+     */
+    @Override
+    protected void onInput() {
+        super.onInput();
+        dirty = true;
+    }
+
+    @Override
+    public void dispose() {
+        if(fbo != null){
+            fbo.dispose();
+            fbo = null;
+            region = null;
+        }
+        dirty = true;
+    }
+}
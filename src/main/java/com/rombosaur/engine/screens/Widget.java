@@ -4,6 +4,9 @@ package com.rombosaur.engine.screens;
  * Every screen widget must implement show() and hide()
  * for visual and memory management reasons.
  *
+ * With Game.setUiCaching() the Stage is only drawn again when it's invalidated, so show(), hide() and
+ * anything that changes how the widget looks must call Game.invalidateUi().
+ *
  * Created by rombus on 04/03/17.
  */
 public interface Widget {
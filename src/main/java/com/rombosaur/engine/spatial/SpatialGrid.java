@@ -0,0 +1,213 @@
+package com.rombosaur.engine.spatial;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Uniform grid (spatial hash) of axis aligned rectangles.
+ * Each rectangle is identified by an int handle given by add(), the owner of the grid maps
+ * those handles to its own objects.
+ *
+ * Only the non empty cells exist, so the world can be as big as you want.
+ * The cells are never freed, they're reused once created, so after warming up there are no allocations.
+ */
+public class SpatialGrid {
+    private final float cellSize;
+    private final IntMap<IntArray> cells;   // key: cellKey(cx, cy)
+    private final IntArray freeHandles;
+
+    // Rango de celdas que ocupa cada handle
+    private int[] minCX, minCY, maxCX, maxCY;
+    private boolean[] used;
+    private int handlesCount;
+
+    // Para no devolver repetidos en el query() cuando un rect ocupa más de una celda
+    private int[] stamps;
+    private int curStamp;
+
+    public SpatialGrid(float cellSize) {
+        if(cellSize <= 0){
+            throw new IllegalArgumentException("SpatialGrid - El tamaño de celda tiene que ser mayor a 0");
+        }
+
+        this.cellSize = cellSize;
+        cells = new IntMap<IntArray>();
+        freeHandles = new IntArray();
+        allocate(64);
+    }
+
+    /**
+     * Inserts a rectangle in the grid.
+     * @return the handle that identifies the rectangle in this grid
+     */
+    public int add(float x, float y, float width, float height){
+        int handle;
+        if(freeHandles.size > 0){
+            handle = freeHandles.pop();
+        } else {
+            handle = handlesCount++;
+            if(handle >= used.length){
+                allocate(used.length * 2);
+            }
+        }
+
+        used[handle] = true;
+        minCX[handle] = cell(x);
+        minCY[handle] = cell(y);
+        maxCX[handle] = cell(x + width);
+        maxCY[handle] = cell(y + height);
+        insert(handle);
+
+        return handle;
+    }
+
+    /**
+     * Moves a rectangle. If it stays on the same cells nothing is done, so it's cheap to call it every frame.
+     */
+    public void update(int handle, float x, float y, float width, float height){
+        int x0 = cell(x), y0 = cell(y), x1 = cell(x + width), y1 = cell(y + height);
+        if(x0 == minCX[handle] && y0 == minCY[handle] && x1 == maxCX[handle] && y1 == maxCY[handle]){
+            return;
+        }
+
+        erase(handle);
+        minCX[handle] = x0;
+        minCY[handle] = y0;
+        maxCX[handle] = x1;
+        maxCY[handle] = y1;
+        insert(handle);
+    }
+
+    public void remove(int handle){
+        if(!used[handle]){
+            return;
+        }
+
+        erase(handle);
+        used[handle] = false;
+        freeHandles.add(handle);
+    }
+
+    /**
+     * Removes every rectangle. All the handles given until now are invalid after this call.
+     */
+    public void clear(){
+        for(IntArray cell : cells.values()){
+            cell.clear();
+        }
+        for(int i = 0; i < handlesCount; i++){
+            used[i] = false;
+        }
+        freeHandles.clear();
+        handlesCount = 0;
+    }
+
+    /**
+     * Adds to "out" the handle of every rectangle that shares a cell with the given area.
+     * It's a broadphase query: results may not overlap the area, but nothing that overlaps is left out.
+     * "out" is not cleared, and every handle appears only once.
+     */
+    public void query(float x, float y, float width, float height, IntArray out){
+        curStamp++;
+        int x0 = cell(x), y0 = cell(y), x1 = cell(x + width), y1 = cell(y + height);
+
+        for(int cx = x0; cx <= x1; cx++){
+            for(int cy = y0; cy <= y1; cy++){
+                IntArray cell = cells.get(cellKey(cx, cy));
+                if(cell == null){
+                    continue;
+                }
+
+                int[] items = cell.items;
+                for(int i = 0, n = cell.size; i < n; i++){
+                    int handle = items[i];
+                    if(stamps[handle] != curStamp){
+                        stamps[handle] = curStamp;
+                        out.add(handle);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as query() but using the cells the handle already occupies, without returning the handle itself.
+     */
+    public void queryNeighbours(int handle, IntArray out){
+        curStamp++;
+        stamps[handle] = curStamp;
+
+        for(int cx = minCX[handle]; cx <= maxCX[handle]; cx++){
+            for(int cy = minCY[handle]; cy <= maxCY[handle]; cy++){
+                IntArray cell = cells.get(cellKey(cx, cy));
+                int[] items = cell.items;
+                for(int i = 0, n = cell.size; i < n; i++){
+                    int other = items[i];
+                    if(stamps[other] != curStamp){
+                        stamps[other] = curStamp;
+                        out.add(other);
+                    }
+                }
+            }
+        }
+    }
+
+    public float getCellSize(){
+        return cellSize;
+    }
+
+    private void insert(int handle){
+        for(int cx = minCX[handle]; cx <= maxCX[handle]; cx++){
+            for(int cy = minCY[handle]; cy <= maxCY[handle]; cy++){
+                int key = cellKey(cx, cy);
+                IntArray cell = cells.get(key);
+                if(cell == null){
+                    cell = new IntArray(8);
+                    cells.put(key, cell);
+                }
+                cell.add(handle);
+            }
+        }
+    }
+
+    private void erase(int handle){
+        for(int cx = minCX[handle]; cx <= maxCX[handle]; cx++){
+            for(int cy = minCY[handle]; cy <= maxCY[handle]; cy++){
+                cells.get(cellKey(cx, cy)).removeValue(handle);
+            }
+        }
+    }
+
+    private int cell(float coord){
+        return (int)Math.floor(coord / cellSize);
+    }
+
+    /**
+     * Packs the cell coordinates in one int. Works for +-32k cells in each axis.
+     */
+    private static int cellKey(int cx, int cy){
+        return (cx << 16) | (cy & 0xFFFF);
+    }
+
+    private void allocate(int capacity){
+        minCX = grow(minCX, capacity);
+        minCY = grow(minCY, capacity);
+        maxCX = grow(maxCX, capacity);
+        maxCY = grow(maxCY, capacity);
+        stamps = grow(stamps, capacity);
+
+        boolean[] newUsed = new boolean[capacity];
+        if(used != null){
+            System.arraycopy(used, 0, newUsed, 0, used.length);
+        }
+        used = newUsed;
+    }
+
+    private static int[] grow(int[] array, int capacity){
+        int[] result = new int[capacity];
+        if(array != null){
+            System.arraycopy(array, 0, result, 0, array.length);
+        }
+        return result;
+    }
+}
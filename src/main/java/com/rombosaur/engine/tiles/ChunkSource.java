@@ -0,0 +1,16 @@
+package com.rombosaur.engine.tiles;
+
+/**
+ * Where the TileLayer gets the tiles of each chunk from (a file per chunk, a region of a big level file, a generator...).
+ * It's called from a background thread, so it can do IO, but it must not touch GL.
+ */
+public interface ChunkSource {
+    /**
+     * @param cx column of the chunk (can be negative)
+     * @param cy row of the chunk (can be negative)
+     * @param tiles where to write the tiles, chunkSize * chunkSize of them, row by row from the bottom.
+     *              0 is an empty cell, any other value is the index in the tileset + 1.
+     * @return false if the chunk doesn't exist (it's left empty)
+     */
+    boolean load(int cx, int cy, short[] tiles);
+}
@@ -0,0 +1,380 @@
+package com.rombosaur.engine.tiles;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+import com.rombosaur.engine.renderer.CacheShader;
+
+import java.util.Arrays;
+
+/**
+ * Capa de tiles dividida en chunks de chunkSize x chunkSize tiles, que se cargan alrededor de la cámara.
+ *
+ * Each chunk keeps its tiles in a short[] and is drawn from its own SpriteCache, built once when it's loaded.
+ * All the chunk caches share one ShaderProgram.
+ * update() asks the ChunkSource (in a background thread) for the chunks that get near the camera, builds the
+ * meshes of the loaded ones without going over the time budget and evicts the ones that got far away.
+ * Chunks (tiles and meshes) are pooled, so memory and load time depend on the view size, not on the world size.
+ *
+ * Add it to the Renderer with Renderer.addTileLayer(), it's drawn in its layer and updated with the Renderer camera.
+ * The tileset regions are owned by the caller.
+ */
+public class TileLayer implements Disposable {
+    private static final int LOADING = 0;
+    private static final int LOADED = 1;    // Tiles listos, falta armar el mesh
+    private static final int READY = 2;
+
+    private final class Chunk implements AsyncTask<Boolean> {
+        int cx, cy;
+        final short[] tiles;
+        SpriteCache cache;          // Se crea la primera vez que se arma el mesh y se reusa con el chunk
+        int cacheId;
+        int tileCount;
+        int state;
+        boolean evicted;            // Se desalojó mientras cargaba
+        AsyncResult<Boolean> loading;
+
+        Chunk() {
+            tiles = new short[chunkSize * chunkSize];
+        }
+
+        @Override
+        public Boolean call() throws Exception {
+            if(!source.load(cx, cy, tiles)){
+                Arrays.fill(tiles, (short)0);
+            }
+            return Boolean.TRUE;
+        }
+    }
+
+    private final TextureRegion[] tileset;
+    private final float tileSize;
+    private final int chunkSize;
+    private final float chunkWorldSize;
+    private final ChunkSource source;
+    private final int layer;
+
+    private int loadRadius;         // Chunks alrededor de la vista que se cargan
+    private int evictRadius;        // Más allá de esto se desalojan
+    private long buildBudgetNanos;
+
+    private final IntMap<Chunk> chunks;
+    private final Array<Chunk> pending;     // Cargando o esperando mesh, en orden de pedido
+    private final Array<Chunk> free;
+    private final IntArray toEvict;
+    private final AsyncExecutor executor;
+    private ShaderProgram shader;           // Compartido por los SpriteCache de todos los chunks, se crea con el primero.
+                                            // Por eso los caches se liberan con CacheShader.disposeMesh() y no con dispose()
+
+    // Rango de chunks visibles del último update()
+    private int viewMinX, viewMinY, viewMaxX, viewMaxY;
+    private boolean hasView;
+    private int renderCalls;
+
+    /**
+     * @param tileset regions of the tiles, a tile with value n uses tileset[n - 1]
+     * @param tileSize size of a tile in world units
+     * @param chunkSize tiles per side of each chunk
+     * @param layer render layer (same meaning as Renderable.layer)
+     */
+    public TileLayer(TextureRegion[] tileset, float tileSize, int chunkSize, ChunkSource source, int layer) {
+        this.tileset = tileset;
+        this.tileSize = tileSize;
+        this.chunkSize = chunkSize;
+        this.chunkWorldSize = tileSize * chunkSize;
+        this.source = source;
+        this.layer = layer;
+        loadRadius = 1;
+        evictRadius = 2;
+        buildBudgetNanos = 2000000; // 2ms
+        chunks = new IntMap<Chunk>();
+        pending = new Array<Chunk>();
+        free = new Array<Chunk>();
+        toEvict = new IntArray();
+        executor = new AsyncExecutor(1);
+    }
+
+    /**
+     * @param loadRadius chunks loaded around the ones in view
+     * @param evictRadius chunks further than this from the view are evicted (at least loadRadius + 1,
+     *                    so moving back and forth on a chunk border doesn't reload chunks)
+     */
+    public void setStreamingRadius(int loadRadius, int evictRadius){
+        this.loadRadius = Math.max(loadRadius, 0);
+        this.evictRadius = Math.max(evictRadius, this.loadRadius + 1);
+    }
+
+    /**
+     * Maximum time per frame (in milliseconds) used to build chunk meshes. At least one is built on each frame.
+     */
+    public void setBuildBudget(float millis){
+        buildBudgetNanos = (long)(millis * 1000000);
+    }
+
+    public int getLayer(){
+        return layer;
+    }
+
+    /**
+     * Streams the chunks around the camera. Render thread, once per frame (the Renderer does it).
+     */
+    public void update(OrthographicCamera camera){
+        float viewWidth = camera.viewportWidth * camera.zoom;
+        float viewHeight = camera.viewportHeight * camera.zoom;
+        float left = camera.position.x - viewWidth / 2;
+        float bottom = camera.position.y - viewHeight / 2;
+
+        viewMinX = chunkCoord(left);
+        viewMinY = chunkCoord(bottom);
+        viewMaxX = chunkCoord(left + viewWidth);
+        viewMaxY = chunkCoord(bottom + viewHeight);
+        hasView = true;
+
+        evictFar();
+        requestNear();
+        finishLoads();
+    }
+
+    private void evictFar(){
+        toEvict.clear();
+        IntMap.Keys keys = chunks.keys();
+        while(keys.hasNext){
+            int key = keys.next();
+            Chunk chunk = chunks.get(key);
+            if(chunk.cx < viewMinX - evictRadius || chunk.cx > viewMaxX + evictRadius
+                    || chunk.cy < viewMinY - evictRadius || chunk.cy > viewMaxY + evictRadius){
+                toEvict.add(key);
+            }
+        }
+
+        for(int i = 0; i < toEvict.size; i++){
+            Chunk chunk = chunks.remove(toEvict.get(i));
+            if(chunk.state == LOADING){
+                chunk.evicted = true; // Vuelve al pool cuando termine de cargar
+            } else {
+                pending.removeValue(chunk, true);
+                free.add(chunk);
+            }
+        }
+    }
+
+    private void requestNear(){
+        for(int cy = viewMinY - loadRadius; cy <= viewMaxY + loadRadius; cy++){
+            for(int cx = viewMinX - loadRadius; cx <= viewMaxX + loadRadius; cx++){
+                int key = key(cx, cy);
+                if(chunks.containsKey(key)){
+                    continue;
+                }
+
+                Chunk chunk = free.size > 0 ? free.pop() : new Chunk();
+                chunk.cx = cx;
+                chunk.cy = cy;
+                chunk.state = LOADING;
+                chunk.evicted = false;
+                chunk.loading = executor.submit(chunk);
+                chunks.put(key, chunk);
+                pending.add(chunk);
+            }
+        }
+    }
+
+    /**
+     * Builds the meshes of the loaded chunks, in request order, until the budget runs out.
+     */
+    private void finishLoads(){
+        long start = TimeUtils.nanoTime();
+        boolean built = false;
+
+        for(int i = 0; i < pending.size; i++){
+            Chunk chunk = pending.get(i);
+            if(chunk.state == LOADING){
+                if(!chunk.loading.isDone()){
+                    continue;
+                }
+                finishLoading(chunk);
+                if(chunk.evicted){
+                    pending.removeIndex(i--);
+                    free.add(chunk);
+                    continue;
+                }
+            }
+
+            if(built && TimeUtils.nanoTime() - start >= buildBudgetNanos){
+                return;
+            }
+            build(chunk);
+            built = true;
+            pending.removeIndex(i--);
+        }
+    }
+
+    private void finishLoading(Chunk chunk){
+        try {
+            chunk.loading.get();
+        } catch (GdxRuntimeException e) {
+            Gdx.app.log("ERR", "TileLayer - No se pudo cargar el chunk ("+chunk.cx+", "+chunk.cy+")", e);
+            Arrays.fill(chunk.tiles, (short)0);
+        }
+        chunk.loading = null;
+        chunk.state = LOADED;
+    }
+
+    private void build(Chunk chunk){
+        short[] tiles = chunk.tiles;
+        int count = 0;
+        for(int i = 0; i < tiles.length; i++){
+            if(tiles[i] != 0){
+                count++;
+            }
+        }
+
+        chunk.tileCount = count;
+        chunk.state = READY;
+        if(count == 0){
+            return;
+        }
+
+        if(chunk.cache == null){
+            if(shader == null){
+                shader = CacheShader.create();
+            }
+            chunk.cache = new SpriteCache(tiles.length, shader, false);
+        } else {
+            chunk.cache.clear();
+        }
+
+        float originX = chunk.cx * chunkWorldSize;
+        float originY = chunk.cy * chunkWorldSize;
+        chunk.cache.beginCache();
+        for(int i = 0; i < tiles.length; i++){
+            int tile = tiles[i];
+            if(tile == 0){
+                continue;
+            }
+            if(tile > tileset.length){
+                Gdx.app.log("WARN", "TileLayer - El tile "+tile+" no existe en el tileset, chunk ("+chunk.cx+", "+chunk.cy+")");
+                continue;
+            }
+            chunk.cache.add(tileset[tile - 1], originX + (i % chunkSize) * tileSize, originY + (i / chunkSize) * tileSize, tileSize, tileSize);
+        }
+        chunk.cacheId = chunk.cache.endCache();
+    }
+
+    /**
+     * Draws the built chunks in view with the projection and transform of the Batch. The Batch must not be drawing.
+     *
+     * @return amount of tiles drawn
+     */
+    public int draw(Batch batch){
+        if(!hasView){
+            return 0;
+        }
+
+        int drawn = 0;
+        for(int cy = viewMinY; cy <= viewMaxY; cy++){
+            for(int cx = viewMinX; cx <= viewMaxX; cx++){
+                Chunk chunk = chunks.get(key(cx, cy));
+                if(chunk == null || chunk.state != READY || chunk.tileCount == 0){
+                    continue;
+                }
+
+                chunk.cache.setProjectionMatrix(batch.getProjectionMatrix());
+                chunk.cache.setTransformMatrix(batch.getTransformMatrix());
+                chunk.cache.begin();
+                chunk.cache.draw(chunk.cacheId);
+                chunk.cache.end();
+                renderCalls += chunk.cache.renderCalls;
+                drawn += chunk.tileCount;
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * @return the tile in that world position, or -1 if its chunk isn't loaded
+     */
+    public int getTile(float worldX, float worldY){
+        int cx = chunkCoord(worldX);
+        int cy = chunkCoord(worldY);
+        Chunk chunk = chunks.get(key(cx, cy));
+        if(chunk == null || chunk.state == LOADING){
+            return -1;
+        }
+
+        int tx = Math.min((int)((worldX - cx * chunkWorldSize) / tileSize), chunkSize - 1);
+        int ty = Math.min((int)((worldY - cy * chunkWorldSize) / tileSize), chunkSize - 1);
+        return chunk.tiles[ty * chunkSize + tx];
+    }
+
+    /**
+     * @return true while there are chunks loading or waiting for their mesh
+     */
+    public boolean isStreaming(){
+        return pending.size > 0;
+    }
+
+    /**
+     * @return chunks in memory (loading, loaded or ready)
+     */
+    public int getLoadedChunks(){
+        return chunks.size;
+    }
+
+    /**
+     * @return draw calls since the last call to this method
+     */
+    public int takeRenderCalls(){
+        int calls = renderCalls;
+        renderCalls = 0;
+        return calls;
+    }
+
+    private int chunkCoord(float world){
+        return (int)Math.floor(world / chunkWorldSize);
+    }
+
+    private static int key(int cx, int cy){
+        return (cx << 16) | (cy & 0xFFFF);
+    }
+
+    @Override
+    public void dispose() {
+        executor.dispose(); // Espera a los que están cargando
+
+        for(Chunk chunk : chunks.values()){
+            if(chunk.cache != null){
+                CacheShader.disposeMesh(chunk.cache);
+            }
+        }
+        for(Chunk chunk : free){
+            if(chunk.cache != null){
+                CacheShader.disposeMesh(chunk.cache);
+            }
+        }
+        for(Chunk chunk : pending){
+            if(chunk.evicted && chunk.cache != null){
+                CacheShader.disposeMesh(chunk.cache); // Se desalojaron mientras cargaban, no están en ningún otro lado
+            }
+        }
+        chunks.clear();
+        pending.clear();
+        free.clear();
+
+        if(shader != null){
+            shader.dispose(); // Una sola vez: los caches se liberaron sin su shader (disposeMesh())
+            shader = null;
+        }
+    }
+}
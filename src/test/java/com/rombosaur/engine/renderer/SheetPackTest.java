@@ -0,0 +1,84 @@
+package com.rombosaur.engine.renderer;
+
+import com.badlogic.gdx.utils.Array;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class SheetPackTest {
+
+    @Test
+    public void readsWhatTheWriterWrote(){
+        RenderableType hero = new RenderableType("sprites/hero.png", 4, 2)
+                .setSize(32, 48)
+                .setBounds(20, 40, 6, 2)
+                .addAnimation("walk", new short[]{0, 1, 2, 3}, (byte) 12, true)
+                .addAnimation("die", new short[]{4, 5, 7}, (byte) 8, false);
+        RenderableType coin = new RenderableType("sprites/coin.png", 6, 1)
+                .setSize(16, 16)
+                .addAnimation("walk", new short[]{5, 4, 3, 2, 1, 0}, (byte) 10, true); // Comparte el nombre con hero
+
+        Array<RenderableType> types = SheetPack.read(ByteBuffer.wrap(write(hero, coin)));
+
+        assertEquals(2, types.size);
+        assertSameType(hero, types.get(0));
+        assertSameType(coin, types.get(1));
+        assertEquals(Renderable.UNINITIALIZED_ID, types.get(0).getId()); // read() no registra
+    }
+
+    @Test
+    public void rejectsFramesOutsideTheGrid(){
+        RenderableType type = new RenderableType("sprites/hero.png", 2, 2)
+                .addAnimation("idle", new short[]{0, 3}, (byte) 4, true);
+        byte[] bytes = write(type);
+        bytes[bytes.length - 1] = 4; // El último frame queda fuera de la grilla de 2x2
+
+        try {
+            SheetPack.read(ByteBuffer.wrap(bytes));
+            fail("Leyó un frame fuera de la grilla");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("SheetPack - "));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsOtherFiles(){
+        SheetPack.read(ByteBuffer.wrap(new byte[]{'P', 'N', 'G', 0, 0, 1}));
+    }
+
+    private static byte[] write(RenderableType... types){
+        SheetPackWriter writer = new SheetPackWriter();
+        for(RenderableType type : types){
+            writer.add(type);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(out);
+        return out.toByteArray();
+    }
+
+    private static void assertSameType(RenderableType expected, RenderableType actual){
+        assertEquals(expected.texturePath, actual.texturePath);
+        assertEquals(expected.framesCols, actual.framesCols);
+        assertEquals(expected.framesRows, actual.framesRows);
+        assertEquals(expected.width, actual.width, 0);
+        assertEquals(expected.height, actual.height, 0);
+        assertEquals(expected.boundsWidth, actual.boundsWidth, 0);
+        assertEquals(expected.boundsHeight, actual.boundsHeight, 0);
+        assertEquals(expected.offsetX, actual.offsetX, 0);
+        assertEquals(expected.offsetY, actual.offsetY, 0);
+        assertEquals(expected.getTextureId(), actual.getTextureId());
+
+        assertEquals(expected.getAnimations().size, actual.getAnimations().size);
+        for(String name : expected.getAnimations().keys()){
+            AnimationData a = expected.getAnimations().get(name);
+            AnimationData b = actual.getAnimations().get(name);
+            assertNotNull(name, b);
+            assertArrayEquals(name, a.frames, b.frames);
+            assertEquals(name, a.fps, b.fps);
+            assertEquals(name, a.loop, b.loop);
+        }
+    }
+}